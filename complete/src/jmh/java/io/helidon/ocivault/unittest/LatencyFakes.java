@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.oracle.bmc.secrets.requests.GetSecretBundleByNameRequest;
+import com.oracle.bmc.secrets.responses.GetSecretBundleByNameResponse;
+import com.oracle.bmc.vault.requests.CreateSecretRequest;
+import com.oracle.bmc.vault.responses.CreateSecretResponse;
+
+/**
+ * Fake OCI clients of the benchmarks, answering like the fake beans of {@link CdiBeanFakeTest} after an artificial
+ * latency.
+ */
+final class LatencyFakes {
+    private LatencyFakes() {
+    }
+
+    private static void pause(long latencyMicros) {
+        if (latencyMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+        }
+    }
+
+    /**
+     * Fake secrets client with artificial latency.
+     */
+    static final class Secrets extends CdiBeanFakeTest.FakeSecretsBean {
+        private final long latencyMicros;
+
+        Secrets(long latencyMicros) {
+            this.latencyMicros = latencyMicros;
+        }
+
+        @Override
+        public GetSecretBundleByNameResponse getSecretBundleByName(GetSecretBundleByNameRequest request) {
+            pause(latencyMicros);
+            return super.getSecretBundleByName(request);
+        }
+    }
+
+    /**
+     * Fake vaults client with artificial latency.
+     */
+    static final class Vaults extends CdiBeanFakeTest.FakeVaultsBean {
+        private final long latencyMicros;
+
+        Vaults(long latencyMicros) {
+            this.latencyMicros = latencyMicros;
+        }
+
+        @Override
+        public CreateSecretResponse createSecret(CreateSecretRequest request) {
+            pause(latencyMicros);
+            return super.createSecret(request);
+        }
+    }
+}
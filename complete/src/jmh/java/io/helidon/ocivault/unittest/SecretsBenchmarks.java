@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once for each configured number of threads, with the GC profiler reporting the allocation
+ * per operation. Results are written to {@code target/jmh-result-<threads>t.json}.
+ *
+ * Settings are read from system properties:
+ * <ul>
+ *     <li>{@code jmh.include} - regular expression of the benchmarks to run</li>
+ *     <li>{@code jmh.threads} - comma separated numbers of threads, defaults to {@code 1,4,16}</li>
+ *     <li>{@code jmh.forks}, {@code jmh.warmup-iterations}, {@code jmh.iterations} - JMH run settings</li>
+ * </ul>
+ */
+public final class SecretsBenchmarks {
+    private SecretsBenchmarks() {
+    }
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args ignored
+     * @throws RunnerException if a benchmark failed
+     */
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("jmh.include", SecretsBenchmarks.class.getPackageName() + ".*Benchmark");
+        for (String threads : System.getProperty("jmh.threads", "1,4,16").split(",")) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .forks(Integer.getInteger("jmh.forks", 1))
+                    .warmupIterations(Integer.getInteger("jmh.warmup-iterations", 3))
+                    .measurementIterations(Integer.getInteger("jmh.iterations", 5))
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-result-" + threads.trim() + "t.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
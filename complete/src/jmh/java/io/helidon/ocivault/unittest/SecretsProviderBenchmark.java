@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Throughput of secret retrieval and creation by {@link SecretsProvider}, with and without the cache, against fake
+ * OCI clients answering after {@code latencyMicros}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SecretsProviderBenchmark {
+    @Param({"0", "1000"})
+    private long latencyMicros;
+
+    private SecretsProvider cachedProvider;
+    private SecretsProvider uncachedProvider;
+
+    @Setup
+    public void setUp() {
+        LatencyFakes.Secrets secrets = new LatencyFakes.Secrets(latencyMicros);
+        LatencyFakes.Vaults vaults = new LatencyFakes.Vaults(latencyMicros);
+        cachedProvider = new SecretsProvider(secrets, vaults, "vaultId", "vaultCompartmentId", "vaultKeyId");
+        uncachedProvider = SecretsProvider.builder(secrets, vaults, "vaultId", "vaultCompartmentId", "vaultKeyId")
+                .secretsCache(new SecretsCache(0, Duration.ZERO, Duration.ZERO, Duration.ZERO, false))
+                .build();
+        cachedProvider.getSecret("username");
+    }
+
+    @TearDown
+    public void tearDown() {
+        cachedProvider.shutdown();
+        uncachedProvider.shutdown();
+    }
+
+    @Benchmark
+    public String getCachedSecret() {
+        return cachedProvider.getSecret("username");
+    }
+
+    @Benchmark
+    public byte[] getCachedSecretBytes() {
+        byte[] value = cachedProvider.getSecretBytes("username");
+        SecretBytes.wipe(value);
+        return value;
+    }
+
+    @Benchmark
+    public String getUncachedSecret() {
+        return uncachedProvider.getSecret("username");
+    }
+
+    @Benchmark
+    public String createSecret() {
+        return cachedProvider.createSecret("NewSecret", "Value");
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Throughput of the {@link SecretsResource} methods, including the asynchronous completion and the request timeout,
+ * against fake OCI clients answering after {@code latencyMicros}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SecretsResourceBenchmark {
+    private static final JsonArray BATCH = Json.createArrayBuilder().add("username").add("password").build();
+
+    @Param({"0", "1000"})
+    private long latencyMicros;
+
+    private SecretsProvider secretsProvider;
+    private SecretsResource secretsResource;
+
+    @Setup
+    public void setUp() {
+        secretsProvider = new SecretsProvider(new LatencyFakes.Secrets(latencyMicros),
+                                              new LatencyFakes.Vaults(latencyMicros),
+                                              "vaultId",
+                                              "vaultCompartmentId",
+                                              "vaultKeyId");
+        secretsResource = new SecretsResource(secretsProvider);
+        secretsResource.getSecrets(BATCH).toCompletableFuture().join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        secretsProvider.shutdown();
+    }
+
+    @Benchmark
+    public Response getSecret() throws IOException {
+        Response response = secretsResource.getSecretAsync("username").toCompletableFuture().join();
+        ((StreamingOutput) response.getEntity()).write(OutputStream.nullOutputStream());
+        return response;
+    }
+
+    @Benchmark
+    public JsonObject getSecrets() {
+        return secretsResource.getSecrets(BATCH).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public String createSecret() {
+        return secretsResource.createSecretAsync("NewSecret", "Value").toCompletableFuture().join();
+    }
+}
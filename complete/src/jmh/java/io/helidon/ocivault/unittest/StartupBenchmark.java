@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Time from process start to the first served request, and peak resident memory at that point, of the packaged
+ * application started from the JVM jar and from the native executable.
+ *
+ * Each target is started {@code startup.runs} times on {@code startup.port}, and polled on {@code /health/live}
+ * until it answers. The application needs the same OCI configuration as when it is run normally. Settings are read
+ * from system properties:
+ * <ul>
+ *     <li>{@code startup.targets} - comma separated targets, {@code jvm} and/or {@code native}</li>
+ *     <li>{@code startup.runs} - number of starts of each target, defaults to {@code 5}</li>
+ *     <li>{@code startup.port} - HTTP port of the application, defaults to {@code 8081}</li>
+ * </ul>
+ */
+public final class StartupBenchmark {
+    private static final String ARTIFACT = "target/helidon-mp-ocivault-unittest";
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args ignored
+     * @throws Exception if the application could not be started
+     */
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.getInteger("startup.runs", 5);
+        int port = Integer.getInteger("startup.port", 8081);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/health/live")).build();
+
+        System.out.printf("%-8s %12s %12s %12s %14s%n", "target", "min (ms)", "median (ms)", "max (ms)", "peak RSS (MB)");
+        for (String target : System.getProperty("startup.targets", "jvm,native").split(",")) {
+            List<String> command = command(target.trim(), port);
+            if (command.isEmpty()) {
+                System.out.printf("%-8s not built, skipping%n", target.trim());
+                continue;
+            }
+            List<Long> millis = new ArrayList<>();
+            long peakRss = -1;
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                Process process = new ProcessBuilder(command)
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                try {
+                    awaitFirstResponse(client, request, process, start);
+                    millis.add(Duration.ofNanos(System.nanoTime() - start).toMillis());
+                    peakRss = Math.max(peakRss, peakRssKilobytes(process.pid()));
+                } finally {
+                    process.destroy();
+                    process.waitFor();
+                }
+            }
+            Collections.sort(millis);
+            System.out.printf("%-8s %12d %12d %12d %14s%n",
+                              target.trim(),
+                              millis.get(0),
+                              millis.get(millis.size() / 2),
+                              millis.get(millis.size() - 1),
+                              peakRss < 0 ? "n/a" : String.valueOf(peakRss / 1024));
+        }
+    }
+
+    private static List<String> command(String target, int port) {
+        String portProperty = "-Dserver.port=" + port;
+        switch (target) {
+        case "jvm":
+            return Files.exists(Paths.get(ARTIFACT + ".jar"))
+                    ? List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                              portProperty,
+                              "-jar",
+                              ARTIFACT + ".jar")
+                    : List.of();
+        case "native":
+            return Files.isExecutable(Paths.get(ARTIFACT))
+                    ? List.of(ARTIFACT, portProperty)
+                    : List.of();
+        default:
+            throw new IllegalArgumentException("Unknown startup target: " + target);
+        }
+    }
+
+    private static void awaitFirstResponse(HttpClient client, HttpRequest request, Process process, long start)
+            throws IOException, InterruptedException {
+        while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue());
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("Application did not answer within " + TIMEOUT);
+    }
+
+    /**
+     * Peak resident set size of a process, as reported by Linux in {@code /proc/<pid>/status}.
+     */
+    private static long peakRssKilobytes(long pid) throws IOException {
+        Path status = Paths.get("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmHWM:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Off-heap storage of secret values, encrypted with AES-GCM using a key generated for this process.
+ *
+ * A sealed value is a direct buffer holding a random IV followed by the encrypted value and its authentication
+ * tag, so plain values of cached secrets are not kept in the Java heap and are not scanned by the garbage
+ * collector.
+ */
+final class OffHeapSecrets {
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(OffHeapSecrets::newCipher);
+
+    OffHeapSecrets() {
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256, random);
+            this.key = generator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to generate the key of the secrets cache", e);
+        }
+    }
+
+    /**
+     * Encrypt a value into a new direct buffer.
+     *
+     * @param value plain value, not modified
+     * @return sealed value
+     */
+    ByteBuffer seal(byte[] value) {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            ByteBuffer sealed = ByteBuffer.allocateDirect(IV_LENGTH + cipher.getOutputSize(value.length));
+            sealed.put(iv);
+            cipher.doFinal(ByteBuffer.wrap(value), sealed);
+            return sealed.flip();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to encrypt a cached secret", e);
+        }
+    }
+
+    /**
+     * Decrypt a sealed value into a new array.
+     *
+     * @param sealed sealed value, not modified
+     * @return plain value owned by the caller
+     */
+    byte[] open(ByteBuffer sealed) {
+        ByteBuffer source = sealed.duplicate();
+        byte[] iv = new byte[IV_LENGTH];
+        source.get(iv);
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] value = new byte[cipher.getOutputSize(source.remaining())];
+            int length = cipher.doFinal(source, ByteBuffer.wrap(value));
+            if (length == value.length) {
+                return value;
+            }
+            byte[] result = Arrays.copyOf(value, length);
+            SecretBytes.wipe(value);
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to decrypt a cached secret", e);
+        }
+    }
+
+    /**
+     * Overwrite a sealed value with zeros.
+     *
+     * @param sealed sealed value
+     */
+    static void wipe(ByteBuffer sealed) {
+        for (int i = 0; i < sealed.capacity(); i++) {
+            sealed.put(i, (byte) 0);
+        }
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    }
+}
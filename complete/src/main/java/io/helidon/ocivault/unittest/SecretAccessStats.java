@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Access statistics of each secret name: requests, fetches from the vault, time of the last request and average
+ * latency of the fetches, to find the secrets that drive the vault traffic.
+ *
+ * Counters are {@link LongAdder}s, so concurrent requests of the same secret do not contend. At most
+ * {@code oci.vault.stats.max-secrets} names are tracked, once there are more, the least requested tenth of them is
+ * dropped, so that names requested only once do not grow the memory while hot secrets are kept.
+ */
+@ApplicationScoped
+public class SecretAccessStats {
+    static final int DEFAULT_MAX_SECRETS = 10000;
+
+    private final int maxSecrets;
+    private final LongSupplier clock;
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Create new access statistics using the settings from configuration.
+     *
+     * @param maxSecrets maximal number of tracked secret names, {@code 0} disables the statistics
+     */
+    @Inject
+    public SecretAccessStats(@ConfigProperty(name = "oci.vault.stats.max-secrets", defaultValue = "10000") int maxSecrets) {
+        this(maxSecrets, System::currentTimeMillis);
+    }
+
+    SecretAccessStats(int maxSecrets, LongSupplier clock) {
+        this.maxSecrets = maxSecrets;
+        this.clock = clock;
+    }
+
+    /**
+     * Create access statistics with the default settings.
+     *
+     * @return secret access statistics
+     */
+    static SecretAccessStats create() {
+        return new SecretAccessStats(DEFAULT_MAX_SECRETS, System::currentTimeMillis);
+    }
+
+    /**
+     * Secrets with the most requests.
+     *
+     * @param limit maximal number of secrets to return
+     * @return statistics of the most requested secrets, most requested first
+     */
+    public List<SecretAccess> top(int limit) {
+        return counters.entrySet()
+                .stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .sorted(Comparator.comparingLong(SecretAccess::requests)
+                                .thenComparingLong(SecretAccess::fetches)
+                                .reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Number of tracked secret names.
+     *
+     * @return number of names
+     */
+    public int size() {
+        return counters.size();
+    }
+
+    void recordRequest(String secretName) {
+        Counters counter = counter(secretName);
+        if (counter != null) {
+            counter.requests.increment();
+            counter.lastAccess = clock.getAsLong();
+        }
+    }
+
+    void recordFetch(String secretName, long nanos) {
+        Counters counter = counter(secretName);
+        if (counter != null) {
+            counter.fetches.increment();
+            counter.fetchNanos.add(nanos);
+        }
+    }
+
+    private Counters counter(String secretName) {
+        if (maxSecrets <= 0) {
+            return null;
+        }
+        Counters counter = counters.get(secretName);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(secretName, name -> new Counters());
+            if (counters.size() > maxSecrets) {
+                prune(secretName);
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Drop the least requested names, except the one just added, down to nine tenths of the maximum.
+     */
+    private synchronized void prune(String added) {
+        int excess = counters.size() - (maxSecrets - maxSecrets / 10);
+        if (counters.size() <= maxSecrets || excess <= 0) {
+            return;
+        }
+        counters.entrySet()
+                .stream()
+                .filter(entry -> !entry.getKey().equals(added))
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().requests.sum()))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList())
+                .forEach(counters::remove);
+    }
+
+    private static final class Counters {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder fetches = new LongAdder();
+        private final LongAdder fetchNanos = new LongAdder();
+        private volatile long lastAccess;
+
+        private SecretAccess snapshot(String secretName) {
+            long fetchCount = fetches.sum();
+            return new SecretAccess(secretName,
+                                    requests.sum(),
+                                    fetchCount,
+                                    lastAccess == 0 ? null : Instant.ofEpochMilli(lastAccess),
+                                    fetchCount == 0 ? Duration.ZERO : Duration.ofNanos(fetchNanos.sum() / fetchCount));
+        }
+    }
+
+    /**
+     * Access statistics of a secret.
+     */
+    public static final class SecretAccess {
+        private final String secretName;
+        private final long requests;
+        private final long fetches;
+        private final Instant lastAccess;
+        private final Duration averageFetchLatency;
+
+        SecretAccess(String secretName, long requests, long fetches, Instant lastAccess, Duration averageFetchLatency) {
+            this.secretName = secretName;
+            this.requests = requests;
+            this.fetches = fetches;
+            this.lastAccess = lastAccess;
+            this.averageFetchLatency = averageFetchLatency;
+        }
+
+        /**
+         * Name of the secret.
+         *
+         * @return secret name
+         */
+        public String secretName() {
+            return secretName;
+        }
+
+        /**
+         * Number of requests of the secret, served from the cache or not.
+         *
+         * @return request count
+         */
+        public long requests() {
+            return requests;
+        }
+
+        /**
+         * Number of fetches of the secret from the vault, including background refreshes.
+         *
+         * @return fetch count
+         */
+        public long fetches() {
+            return fetches;
+        }
+
+        /**
+         * Time of the last request of the secret.
+         *
+         * @return time of the last request, {@code null} if it was only fetched in the background
+         */
+        public Instant lastAccess() {
+            return lastAccess;
+        }
+
+        /**
+         * Average duration of the fetches of the secret from the vault.
+         *
+         * @return average fetch latency, zero if it was never fetched
+         */
+        public Duration averageFetchLatency() {
+            return averageFetchLatency;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Decoding of secret contents to byte and char arrays, without intermediate strings, and wiping of those arrays.
+ */
+final class SecretBytes {
+    // Vault secrets are at most 25 KB, so the buffer of a thread stays small
+    private static final ThreadLocal<byte[]> DECODE_BUFFER = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    private SecretBytes() {
+    }
+
+    /**
+     * Decode Base64 content to an array of the exact decoded length, through a buffer that is reused by the current
+     * thread and wiped after each use.
+     *
+     * @param base64 Base64 encoded content, with or without padding
+     * @return decoded bytes
+     * @throws IllegalArgumentException if the content is not valid Base64
+     */
+    static byte[] decodeBase64(CharSequence base64) {
+        // characters outside of Latin-1 become '?', which the decoder rejects
+        byte[] encoded = base64.toString().getBytes(StandardCharsets.ISO_8859_1);
+        int maxLength = (encoded.length + 3) / 4 * 3;
+        byte[] decoded = DECODE_BUFFER.get();
+        if (decoded.length < maxLength) {
+            decoded = new byte[maxLength];
+            DECODE_BUFFER.set(decoded);
+        }
+        try {
+            return Arrays.copyOf(decoded, Base64.getDecoder().decode(encoded, decoded));
+        } finally {
+            wipe(encoded);
+            Arrays.fill(decoded, 0, maxLength, (byte) 0);
+        }
+    }
+
+    /**
+     * Decode UTF-8 bytes to an array of the exact number of chars. The intermediate buffer is wiped.
+     *
+     * @param bytes UTF-8 encoded bytes
+     * @return decoded chars
+     */
+    static char[] toChars(byte[] bytes) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // UTF-8 never decodes to more chars than bytes
+        char[] buffer = new char[bytes.length];
+        CharBuffer chars = CharBuffer.wrap(buffer);
+        decoder.decode(ByteBuffer.wrap(bytes), chars, true);
+        decoder.flush(chars);
+        char[] result = Arrays.copyOf(buffer, chars.position());
+        wipe(buffer);
+        return result;
+    }
+
+    /**
+     * Overwrite a byte array with zeros.
+     *
+     * @param bytes array to wipe, may be {@code null}
+     */
+    static void wipe(byte[] bytes) {
+        if (bytes != null) {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Overwrite a char array with zeros.
+     *
+     * @param chars array to wipe, may be {@code null}
+     */
+    static void wipe(char[] chars) {
+        if (chars != null) {
+            Arrays.fill(chars, '\0');
+        }
+    }
+}
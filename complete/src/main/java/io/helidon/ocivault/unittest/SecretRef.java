@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.Objects;
+
+/**
+ * Reference to a secret in the vault, identified by its name and optionally a version or a rotation stage.
+ */
+public final class SecretRef {
+    /**
+     * Rotation stage of a secret version.
+     */
+    public enum Stage {
+        /**
+         * The version currently in use.
+         */
+        CURRENT,
+        /**
+         * A version that will become current once the rotation completes.
+         */
+        PENDING,
+        /**
+         * The most recently created version.
+         */
+        LATEST,
+        /**
+         * The version that was current before the current one.
+         */
+        PREVIOUS,
+        /**
+         * A version that is no longer used.
+         */
+        DEPRECATED
+    }
+
+    private final String name;
+    private final Long versionNumber;
+    private final Stage stage;
+
+    private SecretRef(String name, Long versionNumber, Stage stage) {
+        this.name = Objects.requireNonNull(name, "Secret name must not be null");
+        this.versionNumber = versionNumber;
+        this.stage = stage;
+    }
+
+    /**
+     * Reference to the current version of a secret.
+     *
+     * @param name name of the secret
+     * @return secret reference
+     */
+    public static SecretRef current(String name) {
+        return new SecretRef(name, null, null);
+    }
+
+    /**
+     * Reference to a specific version of a secret.
+     *
+     * @param name name of the secret
+     * @param versionNumber version number of the secret
+     * @return secret reference
+     */
+    public static SecretRef version(String name, long versionNumber) {
+        return new SecretRef(name, versionNumber, null);
+    }
+
+    /**
+     * Reference to the version of a secret that is in a rotation stage.
+     *
+     * @param name name of the secret
+     * @param stage rotation stage
+     * @return secret reference
+     */
+    public static SecretRef stage(String name, Stage stage) {
+        Objects.requireNonNull(stage, "Secret stage must not be null");
+        return stage == Stage.CURRENT ? current(name) : new SecretRef(name, null, stage);
+    }
+
+    /**
+     * Name of the secret.
+     *
+     * @return secret name
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Version number of the secret, {@code null} for the current version or a stage.
+     *
+     * @return version number
+     */
+    public Long versionNumber() {
+        return versionNumber;
+    }
+
+    /**
+     * Rotation stage of the secret, {@code null} for the current version or a specific version.
+     *
+     * @return rotation stage
+     */
+    public Stage stage() {
+        return stage;
+    }
+
+    /**
+     * Whether this references the current version of the secret, which changes when the secret is rotated.
+     *
+     * @return {@code true} for the current version
+     */
+    public boolean isCurrent() {
+        return versionNumber == null && stage == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SecretRef)) {
+            return false;
+        }
+        SecretRef other = (SecretRef) o;
+        return name.equals(other.name)
+                && Objects.equals(versionNumber, other.versionNumber)
+                && stage == other.stage;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, versionNumber, stage);
+    }
+
+    @Override
+    public String toString() {
+        if (versionNumber != null) {
+            return name + "@" + versionNumber;
+        }
+        return stage == null ? name : name + "@" + stage;
+    }
+}
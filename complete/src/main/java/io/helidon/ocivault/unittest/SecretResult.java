@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+/**
+ * Outcome of retrieving a single secret as part of a batch, either its value or the error that prevented it.
+ */
+public final class SecretResult {
+    private final String value;
+    private final String error;
+
+    private SecretResult(String value, String error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * Result of a successful retrieval.
+     *
+     * @param value secret value
+     * @return secret result
+     */
+    public static SecretResult success(String value) {
+        return new SecretResult(value, null);
+    }
+
+    /**
+     * Result of a failed retrieval.
+     *
+     * @param throwable cause of the failure
+     * @return secret result
+     */
+    public static SecretResult failure(Throwable throwable) {
+        String message = throwable.getMessage();
+        return new SecretResult(null, message == null ? throwable.getClass().getName() : message);
+    }
+
+    /**
+     * Whether the secret was retrieved.
+     *
+     * @return {@code true} if the result holds a value
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Value of the secret, {@code null} if the retrieval failed.
+     *
+     * @return secret value
+     */
+    public String value() {
+        return value;
+    }
+
+    /**
+     * Description of the failure, {@code null} if the secret was retrieved.
+     *
+     * @return error message
+     */
+    public String error() {
+        return error;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Notifies subscribers when the current version of a secret changes.
+ *
+ * The provider reports the version of each secret it loads from the vault, and a version newer than the one loaded
+ * before is published to the subscribers of the secret. Older versions, e.g. read from a replica that lags behind,
+ * are ignored. Subscribed secrets are reloaded by the background
+ * refresh even if they are not read, so that rotations are detected within the refresh interval by a single watcher
+ * per process instead of by clients polling. Each refresh also sends a heartbeat to the subscribers, so that
+ * subscribers that went away are closed even if their secrets never rotate.
+ */
+@ApplicationScoped
+public class SecretRotations {
+    private static final Logger LOGGER = Logger.getLogger(SecretRotations.class.getName());
+
+    private final ConcurrentHashMap<String, Long> versions = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create secret rotation notifications without subscribers.
+     *
+     * @return secret rotations
+     */
+    static SecretRotations create() {
+        return new SecretRotations();
+    }
+
+    /**
+     * Subscribe to rotations of secrets. The listener is called with the name and new version number of a rotated
+     * secret, on the thread that loaded the new version.
+     *
+     * @param secretNames names of the secrets to watch
+     * @param listener called for each rotation
+     * @return subscription to close once notifications are no longer needed
+     */
+    public Subscription subscribe(Collection<String> secretNames, BiConsumer<String, Long> listener) {
+        return subscribe(secretNames, listener, subscription -> { });
+    }
+
+    /**
+     * Subscribe to rotations of secrets, checking periodically that the subscriber is still there. The heartbeat is
+     * called with the subscription on every refresh cycle, and should close the subscription once the subscriber went
+     * away.
+     *
+     * @param secretNames names of the secrets to watch
+     * @param listener called for each rotation
+     * @param heartbeat called periodically to check the subscriber
+     * @return subscription to close once notifications are no longer needed
+     */
+    public Subscription subscribe(Collection<String> secretNames,
+                                  BiConsumer<String, Long> listener,
+                                  Consumer<Subscription> heartbeat) {
+        Subscription subscription = new Subscription(new LinkedHashSet<>(secretNames), listener, heartbeat);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Names of the secrets that have subscribers.
+     *
+     * @return names of watched secrets
+     */
+    public List<String> watchedSecrets() {
+        Set<String> names = new LinkedHashSet<>();
+        subscriptions.forEach(subscription -> names.addAll(subscription.secretNames));
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Number of open subscriptions.
+     *
+     * @return number of subscriptions
+     */
+    public int subscriptions() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Send a heartbeat to every subscriber, to close the subscriptions of subscribers that went away.
+     */
+    void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.heartbeat.accept(subscription);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Heartbeat of rotation subscriber failed, closing its subscription", e);
+                subscription.close();
+            }
+        }
+    }
+
+    /**
+     * Record the version of a freshly loaded secret, notifying the subscribers if it is newer than the version that was
+     * loaded before.
+     *
+     * @param secretName name of the secret
+     * @param versionNumber loaded version, {@code null} if unknown
+     */
+    void loaded(String secretName, Long versionNumber) {
+        if (versionNumber == null) {
+            return;
+        }
+        AtomicBoolean rotated = new AtomicBoolean();
+        versions.merge(secretName, versionNumber, (known, loaded) -> {
+            if (loaded > known) {
+                rotated.set(true);
+                return loaded;
+            }
+            return known;
+        });
+        if (!rotated.get()) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            if (subscription.secretNames.contains(secretName)) {
+                subscription.notify(secretName, versionNumber);
+            }
+        }
+    }
+
+    /**
+     * Subscription to rotations of a set of secrets.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Set<String> secretNames;
+        private final BiConsumer<String, Long> listener;
+        private final Consumer<Subscription> heartbeat;
+
+        private Subscription(Set<String> secretNames,
+                             BiConsumer<String, Long> listener,
+                             Consumer<Subscription> heartbeat) {
+            this.secretNames = secretNames;
+            this.listener = Objects.requireNonNull(listener, "Listener must not be null");
+            this.heartbeat = Objects.requireNonNull(heartbeat, "Heartbeat must not be null");
+        }
+
+        /**
+         * Names of the watched secrets.
+         *
+         * @return secret names
+         */
+        public Set<String> secretNames() {
+            return secretNames;
+        }
+
+        /**
+         * Stop notifying the listener.
+         */
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+
+        private void notify(String secretName, Long versionNumber) {
+            try {
+                listener.accept(secretName, versionNumber);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Rotation listener of secret " + secretName + " failed", e);
+            }
+        }
+    }
+}
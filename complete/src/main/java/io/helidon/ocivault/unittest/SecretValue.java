@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+/**
+ * Decoded value of a secret together with the number of the version it belongs to.
+ */
+public final class SecretValue {
+    private final byte[] value;
+    private final Long versionNumber;
+
+    SecretValue(byte[] value, Long versionNumber) {
+        this.value = value;
+        this.versionNumber = versionNumber;
+    }
+
+    /**
+     * Decoded secret value as UTF-8 bytes. The array is owned by the receiver of this secret value, which should wipe
+     * it once the secret is no longer needed.
+     *
+     * @return secret value
+     */
+    public byte[] bytes() {
+        return value;
+    }
+
+    /**
+     * Version number of the secret.
+     *
+     * @return version number, {@code null} if unknown
+     */
+    public Long versionNumber() {
+        return versionNumber;
+    }
+
+    /**
+     * Overwrite the secret value with zeros.
+     */
+    public void wipe() {
+        SecretBytes.wipe(value);
+    }
+}
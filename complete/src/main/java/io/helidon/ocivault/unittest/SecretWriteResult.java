@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+/**
+ * Outcome of creating a single secret as part of a batch, either the OCID of the created or updated secret or the
+ * error that prevented it.
+ */
+public final class SecretWriteResult {
+    /**
+     * What happened to the secret.
+     */
+    public enum Status {
+        /**
+         * A new secret was created.
+         */
+        CREATED,
+        /**
+         * The secret already existed and a new version of it was created.
+         */
+        UPDATED,
+        /**
+         * The secret could be neither created nor updated.
+         */
+        FAILED
+    }
+
+    private final Status status;
+    private final String secretId;
+    private final String error;
+
+    private SecretWriteResult(Status status, String secretId, String error) {
+        this.status = status;
+        this.secretId = secretId;
+        this.error = error;
+    }
+
+    /**
+     * Result of a created secret.
+     *
+     * @param secretId OCID of the secret
+     * @return secret write result
+     */
+    public static SecretWriteResult created(String secretId) {
+        return new SecretWriteResult(Status.CREATED, secretId, null);
+    }
+
+    /**
+     * Result of an existing secret that was updated.
+     *
+     * @param secretId OCID of the secret
+     * @return secret write result
+     */
+    public static SecretWriteResult updated(String secretId) {
+        return new SecretWriteResult(Status.UPDATED, secretId, null);
+    }
+
+    /**
+     * Result of a failed write.
+     *
+     * @param throwable cause of the failure
+     * @return secret write result
+     */
+    public static SecretWriteResult failure(Throwable throwable) {
+        String message = throwable.getMessage();
+        return new SecretWriteResult(Status.FAILED, null, message == null ? throwable.getClass().getName() : message);
+    }
+
+    /**
+     * Whether the secret was created or updated.
+     *
+     * @return {@code true} if the result holds an OCID
+     */
+    public boolean isSuccess() {
+        return status != Status.FAILED;
+    }
+
+    /**
+     * What happened to the secret.
+     *
+     * @return status of the write
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * OCID of the secret, {@code null} if the write failed.
+     *
+     * @return secret OCID
+     */
+    public String secretId() {
+        return secretId;
+    }
+
+    /**
+     * Description of the failure, {@code null} if the secret was written.
+     *
+     * @return error message
+     */
+    public String error() {
+        return error;
+    }
+}
@@ -0,0 +1,599 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Bounded in-memory cache of decoded secret values. Values are held as UTF-8 bytes rather than strings, by default
+ * encrypted in off-heap memory with a key generated for this process, see {@code oci.vault.cache.off-heap}. Values
+ * are wiped when they are evicted or replaced.
+ *
+ * Entries expire after a configurable time to live and the least recently used entry is evicted once the cache
+ * holds more than the configured maximum number of entries. Entries that are close to expiring are reported as
+ * due for refresh, so that they can be reloaded in the background while the cached value is still served.
+ * Expired entries are kept for a further {@code stale-ttl}, so that their value can be served while the vault is
+ * unavailable.
+ *
+ * Specific versions of secrets never change, so they are cached separately without expiring, and only evicted
+ * once more than the configured maximum number of versions are cached.
+ */
+@ApplicationScoped
+public class SecretsCache {
+    static final int DEFAULT_MAX_ENTRIES = 1000;
+    static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofSeconds(30);
+    static final Duration DEFAULT_STALE_TTL = Duration.ofHours(1);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final long staleTtlNanos;
+    private final OffHeapSecrets offHeapSecrets;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, CachedSecret> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<SecretRef, CachedSecret> versions = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder explicitEvictions = new LongAdder();
+    private final LongAdder offHeapBytes = new LongAdder();
+
+    /**
+     * Create a new secrets cache using the settings from configuration.
+     *
+     * @param maxEntries maximum number of cached secrets, {@code 0} disables caching
+     * @param ttl time a cached secret is served before it has to be fetched again
+     * @param refreshAhead window before expiry in which a cached secret is reloaded in the background
+     * @param staleTtl time an expired secret is kept to be served while the vault is unavailable
+     * @param offHeap whether values are encrypted in off-heap memory instead of being kept in the Java heap
+     */
+    @Inject
+    public SecretsCache(@ConfigProperty(name = "oci.vault.cache.max-entries", defaultValue = "1000") int maxEntries,
+                        @ConfigProperty(name = "oci.vault.cache.ttl", defaultValue = "PT5M") Duration ttl,
+                        @ConfigProperty(name = "oci.vault.cache.refresh-ahead", defaultValue = "PT30S") Duration refreshAhead,
+                        @ConfigProperty(name = "oci.vault.cache.stale-ttl", defaultValue = "PT1H") Duration staleTtl,
+                        @ConfigProperty(name = "oci.vault.cache.off-heap", defaultValue = "true") boolean offHeap) {
+        this(maxEntries, ttl, refreshAhead, staleTtl, offHeap, System::nanoTime);
+    }
+
+    SecretsCache(int maxEntries, Duration ttl, Duration refreshAhead, LongSupplier clock) {
+        this(maxEntries, ttl, refreshAhead, Duration.ZERO, clock);
+    }
+
+    SecretsCache(int maxEntries, Duration ttl, Duration refreshAhead, Duration staleTtl, LongSupplier clock) {
+        this(maxEntries, ttl, refreshAhead, staleTtl, false, clock);
+    }
+
+    SecretsCache(int maxEntries,
+                 Duration ttl,
+                 Duration refreshAhead,
+                 Duration staleTtl,
+                 boolean offHeap,
+                 LongSupplier clock) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Cache max entries must not be negative: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAheadNanos = Math.min(refreshAhead.toNanos(), ttlNanos);
+        this.staleTtlNanos = Math.max(0, staleTtl.toNanos());
+        this.offHeapSecrets = offHeap ? new OffHeapSecrets() : null;
+        this.clock = clock;
+    }
+
+    /**
+     * Create a new secrets cache with default settings.
+     *
+     * @return secrets cache
+     */
+    static SecretsCache create() {
+        return new SecretsCache(DEFAULT_MAX_ENTRIES, DEFAULT_TTL, DEFAULT_REFRESH_AHEAD, DEFAULT_STALE_TTL, true);
+    }
+
+    /**
+     * Whether secrets are cached at all.
+     *
+     * @return {@code true} if caching is enabled
+     */
+    public boolean isEnabled() {
+        return maxEntries > 0 && ttlNanos > 0;
+    }
+
+    /**
+     * Look up a cached secret. Expired entries are reported as a miss, and removed once they are too old to be
+     * served as stale.
+     *
+     * @param secretName name of the secret
+     * @return cached secret, or empty if the secret is not cached
+     */
+    public synchronized Optional<CachedSecret> get(String secretName) {
+        CachedSecret cached = entries.get(secretName);
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        long now = clock.getAsLong();
+        if (cached.isExpired(now)) {
+            removeIfTooOld(secretName, cached, now);
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        cached.hits.increment();
+        return Optional.of(cached);
+    }
+
+    /**
+     * Look up a cached secret that may have expired, to be served when it cannot be loaded from the vault.
+     *
+     * @param secretName name of the secret
+     * @return cached secret, or empty if the secret is not cached or too old to be served as stale
+     */
+    public synchronized Optional<CachedSecret> getStale(String secretName) {
+        CachedSecret cached = entries.get(secretName);
+        if (cached == null || removeIfTooOld(secretName, cached, clock.getAsLong())) {
+            return Optional.empty();
+        }
+        staleHits.increment();
+        return Optional.of(cached);
+    }
+
+    /**
+     * Store a freshly loaded secret value, replacing any existing entry unless that holds a newer version, e.g. when
+     * the value was read from a replica that lags behind.
+     *
+     * @param secretName name of the secret
+     * @param value decoded secret value, copied into the cache
+     * @param versionNumber version number of the secret, {@code null} if unknown
+     * @return {@code true} if the secret was cached with an older version before
+     */
+    public synchronized boolean put(String secretName, byte[] value, Long versionNumber) {
+        return put(secretName, value, versionNumber, Duration.ZERO);
+    }
+
+    /**
+     * Store a secret value that was loaded from the vault some time ago, such as one restored from a snapshot,
+     * replacing any existing entry unless that holds a newer version. The value expires like a freshly loaded one,
+     * but keeps its age.
+     *
+     * @param secretName name of the secret
+     * @param value decoded secret value, copied into the cache
+     * @param versionNumber version number of the secret, {@code null} if unknown
+     * @param age time since the value was loaded from the vault
+     * @return {@code true} if the secret was cached with an older version before
+     */
+    public synchronized boolean put(String secretName, byte[] value, Long versionNumber, Duration age) {
+        if (!isEnabled()) {
+            return false;
+        }
+        CachedSecret previous = entries.get(secretName);
+        if (previous != null && isOlder(versionNumber, previous.versionNumber)) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        CachedSecret cached = new CachedSecret(offHeapSecrets,
+                                               value,
+                                               versionNumber,
+                                               now - age.toNanos(),
+                                               now + ttlNanos,
+                                               now + ttlNanos - refreshAheadNanos,
+                                               previous == null ? 0 : previous.loads);
+        entries.put(secretName, cached);
+        offHeapBytes.add(cached.offHeapSize());
+        if (previous != null) {
+            discard(previous);
+        }
+        evictOverflow(entries);
+        return previous != null && isOlder(previous.versionNumber, versionNumber);
+    }
+
+    /**
+     * Look up the cached value of a secret if it is of a newer version than a loaded one, without counting a hit.
+     *
+     * @param secretName name of the secret
+     * @param versionNumber version number of the loaded value, {@code null} if unknown
+     * @return cached secret, or empty if the secret is not cached with a newer version
+     */
+    synchronized Optional<CachedSecret> getNewer(String secretName, Long versionNumber) {
+        CachedSecret cached = entries.get(secretName);
+        return cached != null && isOlder(versionNumber, cached.versionNumber) ? Optional.of(cached) : Optional.empty();
+    }
+
+    /**
+     * Look up a cached version of a secret.
+     *
+     * @param secretName name of the secret
+     * @param versionNumber version number of the secret
+     * @return cached secret, or empty if the version is not cached
+     */
+    public synchronized Optional<CachedSecret> getVersion(String secretName, long versionNumber) {
+        CachedSecret cached = versions.get(SecretRef.version(secretName, versionNumber));
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        cached.hits.increment();
+        return Optional.of(cached);
+    }
+
+    /**
+     * Store a version of a secret. A version that is already cached is kept as is, as its value cannot change.
+     *
+     * @param secretName name of the secret
+     * @param versionNumber version number of the secret
+     * @param value decoded secret value, copied into the cache
+     */
+    public synchronized void putVersion(String secretName, long versionNumber, byte[] value) {
+        SecretRef ref = SecretRef.version(secretName, versionNumber);
+        if (maxEntries == 0 || versions.containsKey(ref)) {
+            return;
+        }
+        long now = clock.getAsLong();
+        CachedSecret cached = new CachedSecret(offHeapSecrets,
+                                               value,
+                                               versionNumber,
+                                               now,
+                                               Long.MAX_VALUE,
+                                               Long.MAX_VALUE,
+                                               0);
+        versions.put(ref, cached);
+        offHeapBytes.add(cached.offHeapSize());
+        evictOverflow(versions);
+    }
+
+    /**
+     * Names of cached secrets that were read since they were last loaded.
+     *
+     * @return names of hot secrets
+     */
+    public synchronized List<String> hotSecrets() {
+        return entries.entrySet()
+                .stream()
+                .filter(entry -> entry.getValue().hits.sum() > 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cached secrets in the order of their last use, including expired ones that were not looked up yet. Cached
+     * versions are not included.
+     *
+     * @return cached secrets by name
+     */
+    synchronized Map<String, CachedSecret> entries() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    /**
+     * Remove a secret from the cache, including all of its cached versions.
+     *
+     * @param secretName name of the secret
+     * @return {@code true} if the secret was cached
+     */
+    public synchronized boolean evict(String secretName) {
+        boolean evicted = false;
+        CachedSecret removed = entries.remove(secretName);
+        if (removed != null) {
+            discard(removed);
+            explicitEvictions.increment();
+            evicted = true;
+        }
+        Iterator<Map.Entry<SecretRef, CachedSecret>> it = versions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<SecretRef, CachedSecret> version = it.next();
+            if (version.getKey().name().equals(secretName)) {
+                it.remove();
+                discard(version.getValue());
+                explicitEvictions.increment();
+                evicted = true;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Remove all secrets from the cache.
+     */
+    public synchronized void clear() {
+        explicitEvictions.add(entries.size() + versions.size());
+        entries.values().forEach(this::discard);
+        entries.clear();
+        versions.values().forEach(this::discard);
+        versions.clear();
+    }
+
+    /**
+     * Number of currently cached secrets, including expired ones that were not looked up yet. Cached versions are
+     * not included, see the {@code versions} statistic.
+     *
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Statistics of a single cached secret.
+     *
+     * @param secretName name of the secret
+     * @return statistics, or empty if the secret is not cached
+     */
+    public synchronized Optional<SecretStats> stats(String secretName) {
+        CachedSecret cached = entries.get(secretName);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        long now = clock.getAsLong();
+        return Optional.of(new SecretStats(cached.versionNumber,
+                                           cached.hits.sum(),
+                                           cached.loads,
+                                           Duration.ofNanos(now - cached.loadedAt),
+                                           Duration.ofNanos(Math.max(0, cached.expiresAt - now))));
+    }
+
+    /**
+     * Cache-wide statistics.
+     *
+     * @return map of statistic name to value
+     */
+    public synchronized Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) entries.size());
+        stats.put("versions", (long) versions.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("stale-hits", staleHits.sum());
+        stats.put("evictions-size", sizeEvictions.sum());
+        stats.put("evictions-expired", expiredEvictions.sum());
+        stats.put("evictions-explicit", explicitEvictions.sum());
+        stats.put("off-heap-bytes", offHeapBytes.sum());
+        return stats;
+    }
+
+    /**
+     * Returns the current time of the cache clock, used to check refresh-ahead windows.
+     *
+     * @return current time in nanoseconds
+     */
+    long now() {
+        return clock.getAsLong();
+    }
+
+    private boolean removeIfTooOld(String secretName, CachedSecret cached, long now) {
+        if (now - cached.expiresAt >= staleTtlNanos) {
+            entries.remove(secretName);
+            discard(cached);
+            expiredEvictions.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private void evictOverflow(Map<?, CachedSecret> cached) {
+        Iterator<CachedSecret> it = cached.values().iterator();
+        while (cached.size() > maxEntries && it.hasNext()) {
+            CachedSecret evicted = it.next();
+            it.remove();
+            discard(evicted);
+            sizeEvictions.increment();
+        }
+    }
+
+    private static boolean isOlder(Long versionNumber, Long otherVersionNumber) {
+        return versionNumber != null && otherVersionNumber != null && versionNumber < otherVersionNumber;
+    }
+
+    private void discard(CachedSecret cached) {
+        offHeapBytes.add(-cached.offHeapSize());
+        cached.wipe();
+    }
+
+    /**
+     * A cached secret value.
+     */
+    public static final class CachedSecret {
+        private final OffHeapSecrets offHeapSecrets;
+        private final byte[] heapValue;
+        private final ByteBuffer sealedValue;
+        private final Long versionNumber;
+        private final long loadedAt;
+        private final long expiresAt;
+        private final long refreshAt;
+        private final long loads;
+        private final LongAdder hits = new LongAdder();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private boolean wiped;
+
+        private CachedSecret(OffHeapSecrets offHeapSecrets,
+                             byte[] value,
+                             Long versionNumber,
+                             long loadedAt,
+                             long expiresAt,
+                             long refreshAt,
+                             long previousLoads) {
+            this.offHeapSecrets = offHeapSecrets;
+            this.heapValue = offHeapSecrets == null ? value.clone() : null;
+            this.sealedValue = offHeapSecrets == null ? null : offHeapSecrets.seal(value);
+            this.versionNumber = versionNumber;
+            this.loadedAt = loadedAt;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+            this.loads = previousLoads + 1;
+        }
+
+        /**
+         * Decoded secret value.
+         *
+         * @return secret value
+         * @throws IllegalStateException if the entry was evicted in the meantime
+         */
+        public String value() {
+            byte[] value = copy();
+            if (value == null) {
+                throw new IllegalStateException("Cached secret was evicted");
+            }
+            try {
+                return new String(value, StandardCharsets.UTF_8);
+            } finally {
+                SecretBytes.wipe(value);
+            }
+        }
+
+        /**
+         * Copy of the decoded secret value as UTF-8 bytes, owned by the caller.
+         *
+         * @return secret value, or {@code null} if the entry was evicted in the meantime
+         */
+        synchronized byte[] copy() {
+            if (wiped) {
+                return null;
+            }
+            return offHeapSecrets == null ? heapValue.clone() : offHeapSecrets.open(sealedValue);
+        }
+
+        private synchronized void wipe() {
+            wiped = true;
+            if (offHeapSecrets == null) {
+                SecretBytes.wipe(heapValue);
+            } else {
+                OffHeapSecrets.wipe(sealedValue);
+            }
+        }
+
+        long loadedAt() {
+            return loadedAt;
+        }
+
+        private long offHeapSize() {
+            return sealedValue == null ? 0 : sealedValue.capacity();
+        }
+
+        /**
+         * Version number of the cached value.
+         *
+         * @return version number, {@code null} if unknown
+         */
+        public Long versionNumber() {
+            return versionNumber;
+        }
+
+        /**
+         * Claim the background refresh of this entry. Returns {@code true} only once, and only if the entry
+         * is within its refresh-ahead window.
+         *
+         * @param now current time in nanoseconds
+         * @return {@code true} if the caller should reload the secret
+         */
+        boolean claimRefresh(long now) {
+            return now >= refreshAt && refreshing.compareAndSet(false, true);
+        }
+
+        /**
+         * Release a claimed refresh after the reload failed, so that a later lookup can retry it.
+         */
+        void refreshFailed() {
+            refreshing.set(false);
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    /**
+     * Statistics of a single cached secret.
+     */
+    public static final class SecretStats {
+        private final Long versionNumber;
+        private final long hits;
+        private final long loads;
+        private final Duration age;
+        private final Duration expiresIn;
+
+        SecretStats(Long versionNumber, long hits, long loads, Duration age, Duration expiresIn) {
+            this.versionNumber = versionNumber;
+            this.hits = hits;
+            this.loads = loads;
+            this.age = age;
+            this.expiresIn = expiresIn;
+        }
+
+        /**
+         * Version number of the cached value.
+         *
+         * @return version number, {@code null} if unknown
+         */
+        public Long versionNumber() {
+            return versionNumber;
+        }
+
+        /**
+         * Number of lookups served from the cache since the value was loaded.
+         *
+         * @return hit count
+         */
+        public long hits() {
+            return hits;
+        }
+
+        /**
+         * Number of times the value was loaded from the vault while cached.
+         *
+         * @return load count
+         */
+        public long loads() {
+            return loads;
+        }
+
+        /**
+         * Time since the value was loaded.
+         *
+         * @return age of the cached value
+         */
+        public Duration age() {
+            return age;
+        }
+
+        /**
+         * Time until the value expires.
+         *
+         * @return remaining time to live
+         */
+        public Duration expiresIn() {
+            return expiresIn;
+        }
+    }
+}
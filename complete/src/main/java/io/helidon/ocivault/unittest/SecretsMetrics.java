@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.oracle.bmc.model.BmcException;
+import org.apache.http.pool.PoolStats;
+import org.eclipse.microprofile.metrics.ConcurrentGauge;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
+
+/**
+ * Application metrics of the calls to OCI Vault and of the secrets cache.
+ *
+ * Each vault call is timed by {@code secrets.vault.calls}, tagged with the {@code operation} and its
+ * {@code outcome} ({@code success}, {@code not-found}, {@code throttled} or {@code error}), and counted in the
+ * {@code secrets.vault.inflight} concurrent gauge while it runs. The moving average of the read latency of each
+ * vault replica is exposed by the {@code secrets.vault.latency} gauge, tagged with the {@code replica}, and the
+ * connections of each client by the {@code secrets.vault.connections} gauge, tagged with the {@code pool} and the
+ * {@code state} of the connections ({@code leased}, {@code available}, {@code pending} or {@code max}).
+ */
+@ApplicationScoped
+public class SecretsMetrics {
+    static final String OUTCOME_SUCCESS = "success";
+    static final String OUTCOME_NOT_FOUND = "not-found";
+    static final String OUTCOME_THROTTLED = "throttled";
+    static final String OUTCOME_ERROR = "error";
+
+    private static final Metadata VAULT_CALLS = Metadata.builder()
+            .withName("secrets.vault.calls")
+            .withDescription("Duration of calls to OCI Vault")
+            .withType(MetricType.TIMER)
+            .withUnit(MetricUnits.NANOSECONDS)
+            .build();
+    private static final Metadata VAULT_IN_FLIGHT = Metadata.builder()
+            .withName("secrets.vault.inflight")
+            .withDescription("Number of calls to OCI Vault in progress")
+            .withType(MetricType.CONCURRENT_GAUGE)
+            .build();
+    private static final Metadata VAULT_LATENCY = Metadata.builder()
+            .withName("secrets.vault.latency")
+            .withDescription("Moving average of the duration of reads from a vault replica")
+            .withType(MetricType.GAUGE)
+            .withUnit(MetricUnits.NANOSECONDS)
+            .build();
+    private static final Metadata VAULT_CONNECTIONS = Metadata.builder()
+            .withName("secrets.vault.connections")
+            .withDescription("Connections of the pool of an OCI Vault client")
+            .withType(MetricType.GAUGE)
+            .build();
+
+    private final MetricRegistry registry;
+
+    /**
+     * Create new secrets metrics registered in the application registry.
+     *
+     * @param registry application metric registry
+     */
+    @Inject
+    public SecretsMetrics(@RegistryType(type = MetricRegistry.Type.APPLICATION) MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Create secrets metrics that are not recorded anywhere.
+     *
+     * @return disabled secrets metrics
+     */
+    static SecretsMetrics disabled() {
+        return new SecretsMetrics(null);
+    }
+
+    /**
+     * Run and time a call to the vault.
+     *
+     * @param operation name of the vault operation
+     * @param call the call to the vault
+     * @param <T> type of the result
+     * @return result of the call
+     */
+    public <T> T timeVaultCall(String operation, Supplier<T> call) {
+        if (registry == null) {
+            return call.get();
+        }
+        Tag operationTag = new Tag("operation", operation);
+        ConcurrentGauge inFlight = registry.concurrentGauge(VAULT_IN_FLIGHT, operationTag);
+        String outcome = OUTCOME_ERROR;
+        long start = System.nanoTime();
+        inFlight.inc();
+        try {
+            T result = call.get();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            inFlight.dec();
+            registry.timer(VAULT_CALLS, operationTag, new Tag("outcome", outcome))
+                    .update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Expose the statistics of the secrets cache as counters, the statistics are maintained by the cache itself.
+     *
+     * @param cache secrets cache
+     */
+    public void registerCache(SecretsCache cache) {
+        if (registry == null) {
+            return;
+        }
+        registerCacheCounter(cache, "secrets.cache.hits", "Lookups served from the cache", "hits");
+        registerCacheCounter(cache, "secrets.cache.misses", "Lookups not served from the cache", "misses");
+        registerCacheCounter(cache, "secrets.cache.stale-hits", "Expired values served while the vault was unavailable",
+                             "stale-hits");
+        registerCacheCounter(cache, "secrets.cache.evictions", "Entries evicted from the cache",
+                             "evictions-size", new Tag("reason", "size"));
+        registerCacheCounter(cache, "secrets.cache.evictions", "Entries evicted from the cache",
+                             "evictions-expired", new Tag("reason", "expired"));
+        registerCacheCounter(cache, "secrets.cache.evictions", "Entries evicted from the cache",
+                             "evictions-explicit", new Tag("reason", "explicit"));
+    }
+
+    /**
+     * Expose the read latency of the vault and its replicas as gauges.
+     *
+     * @param vaults the configured vault and its replicas
+     */
+    public void registerVaults(List<VaultReplica> vaults) {
+        if (registry == null) {
+            return;
+        }
+        for (VaultReplica vault : vaults) {
+            registry.register(VAULT_LATENCY, (Gauge<Long>) vault::latencyNanos, new Tag("replica", vault.name()));
+        }
+    }
+
+    /**
+     * Expose the state of the connection pool of a vault client as gauges.
+     *
+     * @param pool name of the pool
+     * @param stats supplier of the current statistics of the pool
+     */
+    public void registerConnectionPool(String pool, Supplier<PoolStats> stats) {
+        if (registry == null) {
+            return;
+        }
+        registerConnectionGauge(pool, "leased", stats, PoolStats::getLeased);
+        registerConnectionGauge(pool, "available", stats, PoolStats::getAvailable);
+        registerConnectionGauge(pool, "pending", stats, PoolStats::getPending);
+        registerConnectionGauge(pool, "max", stats, PoolStats::getMax);
+    }
+
+    /**
+     * Classify a failed vault call.
+     *
+     * @param e failure of the call
+     * @return outcome of the call
+     */
+    static String outcome(Throwable e) {
+        if (e instanceof BmcException) {
+            int status = ((BmcException) e).getStatusCode();
+            if (status == 404) {
+                return OUTCOME_NOT_FOUND;
+            }
+            if (status == 429) {
+                return OUTCOME_THROTTLED;
+            }
+        }
+        return OUTCOME_ERROR;
+    }
+
+    private void registerConnectionGauge(String pool,
+                                         String state,
+                                         Supplier<PoolStats> stats,
+                                         ToIntFunction<PoolStats> value) {
+        registry.register(VAULT_CONNECTIONS,
+                          (Gauge<Integer>) () -> value.applyAsInt(stats.get()),
+                          new Tag("pool", pool),
+                          new Tag("state", state));
+    }
+
+    private void registerCacheCounter(SecretsCache cache, String name, String description, String stat, Tag... tags) {
+        Metadata metadata = Metadata.builder()
+                .withName(name)
+                .withDescription(description)
+                .withType(MetricType.COUNTER)
+                .build();
+        registry.register(metadata, new CacheCounter(() -> cache.stats().get(stat)), tags);
+    }
+
+    /**
+     * Counter of a statistic the cache counts itself, so that lookups do not update the registry as well.
+     */
+    private static final class CacheCounter implements Counter {
+        private final Supplier<Long> count;
+
+        private CacheCounter(Supplier<Long> count) {
+            this.count = count;
+        }
+
+        @Override
+        public void inc() {
+            throw new UnsupportedOperationException("Counted by the secrets cache");
+        }
+
+        @Override
+        public void inc(long n) {
+            throw new UnsupportedOperationException("Counted by the secrets cache");
+        }
+
+        @Override
+        public long getCount() {
+            return count.get();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Loads the secrets listed in {@code oci.vault.prefetch} in parallel when the application starts, so that the
+ * first requests are served from the cache. Secrets that fail to load are retried after
+ * {@code oci.vault.prefetch.retry-delay} until all of them are loaded.
+ */
+@ApplicationScoped
+public class SecretsPrefetcher {
+    private static final Logger LOGGER = Logger.getLogger(SecretsPrefetcher.class.getName());
+
+    private final SecretsProvider secretsProvider;
+    private final List<String> secrets;
+    private final Duration retryDelay;
+    private final Set<String> pending;
+
+    /**
+     * Create a new prefetcher using the settings from configuration.
+     *
+     * @param secretsProvider the provider of secrets from OCI Vault
+     * @param retryDelay time to wait before loading failed secrets again
+     * @param config configuration to read the names of the secrets to prefetch
+     */
+    @Inject
+    public SecretsPrefetcher(SecretsProvider secretsProvider,
+                             @ConfigProperty(name = "oci.vault.prefetch.retry-delay", defaultValue = "PT5S") Duration retryDelay,
+                             Config config) {
+        this(secretsProvider,
+             config.getOptionalValue("oci.vault.prefetch", String[].class)
+                     .map(Arrays::asList)
+                     .orElse(Collections.emptyList()),
+             retryDelay);
+    }
+
+    SecretsPrefetcher(SecretsProvider secretsProvider, List<String> secrets, Duration retryDelay) {
+        this.secretsProvider = secretsProvider;
+        this.secrets = secrets;
+        this.retryDelay = retryDelay;
+        this.pending = ConcurrentHashMap.newKeySet();
+        this.pending.addAll(secrets);
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        prefetch();
+    }
+
+    /**
+     * Load all secrets that were not loaded yet.
+     *
+     * @return completion stage that completes once this attempt is done
+     */
+    CompletableFuture<Void> prefetch() {
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return secretsProvider.prefetchSecretsAsync(List.copyOf(pending))
+                .toCompletableFuture()
+                .thenAccept(results -> {
+                    results.forEach((name, result) -> {
+                        if (result.isSuccess()) {
+                            pending.remove(name);
+                        }
+                    });
+                    if (pending.isEmpty()) {
+                        LOGGER.info("Prefetched " + secrets.size() + " secrets");
+                    } else {
+                        LOGGER.warning("Failed to prefetch secrets " + pending + ", retrying in " + retryDelay);
+                        CompletableFuture.delayedExecutor(retryDelay.toMillis(), TimeUnit.MILLISECONDS)
+                                .execute(this::prefetch);
+                    }
+                });
+    }
+
+    /**
+     * Whether all configured secrets were loaded.
+     *
+     * @return {@code true} once prefetching is complete
+     */
+    public boolean isComplete() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Names of the configured secrets that are not loaded yet.
+     *
+     * @return names of pending secrets
+     */
+    public Set<String> pending() {
+        return new TreeSet<>(pending);
+    }
+}
@@ -16,19 +16,50 @@
 package io.helidon.ocivault.unittest;
 
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import com.oracle.bmc.vault.model.SecretContentDetails;
+import com.oracle.bmc.vault.model.SecretSummary;
+import com.oracle.bmc.vault.model.UpdateSecretDetails;
 import com.oracle.bmc.vault.requests.CreateSecretRequest;
+import com.oracle.bmc.vault.requests.ListSecretsRequest;
+import com.oracle.bmc.vault.requests.UpdateSecretRequest;
 import io.helidon.common.Base64Value;
+import io.opentracing.Span;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import com.oracle.bmc.model.BmcException;
 import com.oracle.bmc.vault.Vaults;
 import com.oracle.bmc.vault.model.Base64SecretContentDetails;
 import com.oracle.bmc.vault.model.CreateSecretDetails;
 import com.oracle.bmc.secrets.Secrets;
 import com.oracle.bmc.secrets.model.Base64SecretBundleContentDetails;
+import com.oracle.bmc.secrets.model.SecretBundle;
 import com.oracle.bmc.secrets.model.SecretBundleContentDetails;
 import com.oracle.bmc.secrets.requests.GetSecretBundleByNameRequest;
 
@@ -37,11 +68,34 @@ import com.oracle.bmc.secrets.requests.GetSecretBundleByNameRequest;
  */
 @ApplicationScoped
 public class SecretsProvider {
+    private static final Logger LOGGER = Logger.getLogger(SecretsProvider.class.getName());
+    private static final int DEFAULT_EXECUTOR_THREADS = 16;
+    private static final int DEFAULT_BATCH_CONCURRENCY = 8;
+    private static final int DEFAULT_BATCH_WRITE_CONCURRENCY = 4;
+
     private final Vaults vaultsClient;
     private final Secrets secretsClient;
     private final String vaultId;
     private final String vaultCompartmentId;
     private final String vaultKeyId;
+    private final SecretsCache secretsCache;
+    private final int executorThreads;
+    private final int batchConcurrency;
+    private final int batchWriteConcurrency;
+    private final SecretsRefresher secretsRefresher;
+    private final SecretsMetrics secretsMetrics;
+    private final SecretsTracing secretsTracing;
+    private final VaultCallPolicy vaultCallPolicy;
+    private final VaultRateLimiter vaultRateLimiter;
+    private final SecretRotations secretRotations;
+    private final VaultReplicas vaultReplicas;
+    private final SecretsSnapshot secretsSnapshot;
+    private final SecretAccessStats secretAccessStats;
+    private final List<VaultReplica> readVaults;
+    private volatile ExecutorService vaultExecutor;
+    // each caller sharing a load gets its own copy, the loaded value is wiped once all callers have theirs
+    private final SingleFlight<SecretRef, SecretValue> secretLoads =
+            new SingleFlight<>(SecretsProvider::copy, SecretValue::wipe);
 
     /**
      * Create a new secrets provider, injecting an Oci vaults and secrets client and reading various
@@ -52,40 +106,323 @@ public class SecretsProvider {
      * @param vaultKeyId Vault OCID
      * @param vaultCompartmentId Vault compartment OCID
      * @param vaultKeyId Vault key OCID
+     * @param secretsCache cache of retrieved secret values
+     * @param executorThreads number of threads used for asynchronous vault calls
+     * @param batchConcurrency maximal number of concurrent vault calls of a single batch retrieval
+     * @param batchWriteConcurrency maximal number of concurrent vault calls of a single batch creation
+     * @param secretsRefresher background refresh of hot secrets
+     * @param secretsMetrics metrics of vault calls and of the cache
+     * @param secretsTracing tracing of secret operations and vault calls
+     * @param vaultCallPolicy retries, circuit breaker and bulkhead of vault calls
+     * @param vaultRateLimiter client-side rate limits of vault calls
+     * @param secretRotations notifications of rotated secrets
+     * @param vaultReplicas replicas of the vault that secrets are also read from
+     * @param secretsSnapshot snapshot of the cached secrets on local disk
+     * @param secretAccessStats access statistics of each secret
      */
     @Inject
     public SecretsProvider(Secrets secretsClient,
                            Vaults vaultsClient,
                            @ConfigProperty(name = "oci.vault.id") String vaultId,
                            @ConfigProperty(name = "oci.vault.compartment-id") String vaultCompartmentId,
-                           @ConfigProperty(name = "oci.vault.key-id") String vaultKeyId) {
-        this.vaultsClient = vaultsClient;
-        this.secretsClient = secretsClient;
-        this.vaultId = vaultId;
-        this.vaultCompartmentId = vaultCompartmentId;
-        this.vaultKeyId = vaultKeyId;
+                           @ConfigProperty(name = "oci.vault.key-id") String vaultKeyId,
+                           SecretsCache secretsCache,
+                           @ConfigProperty(name = "oci.vault.executor.threads", defaultValue = "16") int executorThreads,
+                           @ConfigProperty(name = "oci.vault.batch.concurrency", defaultValue = "8") int batchConcurrency,
+                           @ConfigProperty(name = "oci.vault.batch.write-concurrency", defaultValue = "4") int batchWriteConcurrency,
+                           SecretsRefresher secretsRefresher,
+                           SecretsMetrics secretsMetrics,
+                           SecretsTracing secretsTracing,
+                           VaultCallPolicy vaultCallPolicy,
+                           VaultRateLimiter vaultRateLimiter,
+                           SecretRotations secretRotations,
+                           VaultReplicas vaultReplicas,
+                           SecretsSnapshot secretsSnapshot,
+                           SecretAccessStats secretAccessStats) {
+        this(builder(secretsClient, vaultsClient, vaultId, vaultCompartmentId, vaultKeyId)
+                     .secretsCache(secretsCache)
+                     .executorThreads(executorThreads)
+                     .batchConcurrency(batchConcurrency)
+                     .batchWriteConcurrency(batchWriteConcurrency)
+                     .secretsRefresher(secretsRefresher)
+                     .secretsMetrics(secretsMetrics)
+                     .secretsTracing(secretsTracing)
+                     .vaultCallPolicy(vaultCallPolicy)
+                     .vaultRateLimiter(vaultRateLimiter)
+                     .secretRotations(secretRotations)
+                     .vaultReplicas(vaultReplicas)
+                     .secretsSnapshot(secretsSnapshot)
+                     .secretAccessStats(secretAccessStats));
+    }
+
+    /**
+     * Create a new secrets provider with default cache and executor settings, without background refresh,
+     * metrics, tracing, retries and rate limits.
+     *
+     * @param vaultsClient Oci vaults client
+     * @param secretsClient Oci secrets client
+     * @param vaultId Vault OCID
+     * @param vaultCompartmentId Vault compartment OCID
+     * @param vaultKeyId Vault key OCID
+     */
+    public SecretsProvider(Secrets secretsClient,
+                           Vaults vaultsClient,
+                           String vaultId,
+                           String vaultCompartmentId,
+                           String vaultKeyId) {
+        this(builder(secretsClient, vaultsClient, vaultId, vaultCompartmentId, vaultKeyId));
+    }
+
+    private SecretsProvider(Builder builder) {
+        this.vaultsClient = builder.vaultsClient;
+        this.secretsClient = builder.secretsClient;
+        this.vaultId = builder.vaultId;
+        this.vaultCompartmentId = builder.vaultCompartmentId;
+        this.vaultKeyId = builder.vaultKeyId;
+        // stateful collaborators are created per provider, so that providers built by tests do not share them
+        this.secretsCache = Objects.requireNonNullElseGet(builder.secretsCache, SecretsCache::create);
+        this.batchConcurrency = Math.max(1, builder.batchConcurrency);
+        this.batchWriteConcurrency = Math.max(1, builder.batchWriteConcurrency);
+        this.secretsRefresher = builder.secretsRefresher;
+        this.secretsMetrics = builder.secretsMetrics;
+        this.secretsTracing = builder.secretsTracing;
+        this.vaultCallPolicy = builder.vaultCallPolicy;
+        this.vaultRateLimiter = builder.vaultRateLimiter;
+        this.secretRotations = Objects.requireNonNullElseGet(builder.secretRotations, SecretRotations::create);
+        this.vaultReplicas = builder.vaultReplicas;
+        this.secretsSnapshot = builder.secretsSnapshot;
+        this.secretAccessStats = Objects.requireNonNullElseGet(builder.secretAccessStats, SecretAccessStats::create);
+        List<VaultReplica> vaults = new ArrayList<>();
+        vaults.add(new VaultReplica("primary", null, vaultId, secretsClient, Collections.emptyList()));
+        vaults.addAll(builder.vaultReplicas.replicas());
+        this.readVaults = List.copyOf(vaults);
+        this.executorThreads = builder.executorThreads;
+    }
+
+    /**
+     * Builder of a secrets provider outside of CDI, e.g. in tests and benchmarks. Collaborators that are not set
+     * default to the default cache and executor settings, without background refresh, metrics, tracing, retries,
+     * rate limits, replicas and snapshot.
+     *
+     * @param vaultsClient Oci vaults client
+     * @param secretsClient Oci secrets client
+     * @param vaultId Vault OCID
+     * @param vaultCompartmentId Vault compartment OCID
+     * @param vaultKeyId Vault key OCID
+     * @return builder of a secrets provider
+     */
+    static Builder builder(Secrets secretsClient,
+                           Vaults vaultsClient,
+                           String vaultId,
+                           String vaultCompartmentId,
+                           String vaultKeyId) {
+        return new Builder(secretsClient, vaultsClient, vaultId, vaultCompartmentId, vaultKeyId);
     }
 
     /**
-     * Get existing secret
+     * Get existing secret. Cached values are returned without calling the vault, and values that are about
+     * to expire are reloaded in the background. Concurrent retrievals of a secret that is not cached share
+     * a single call to the vault. While the vault is unavailable, an expired cached value is returned if there
+     * is one.
      *
      * @param secretKey name of the secret
      * @return secretValue of the retrieved secret
      */
     public String getSecret(String secretKey) {
-        SecretBundleContentDetails content = secretsClient.getSecretBundleByName(GetSecretBundleByNameRequest.builder()
-                        .secretName(secretKey)
-                        .vaultId(vaultId)
-                        .build())
-                .getSecretBundle()
-                .getSecretBundleContent();
-        if (content != null && content instanceof Base64SecretBundleContentDetails) {
-            return Base64Value.createFromEncoded(((Base64SecretBundleContentDetails) content).getContent()).toDecodedString();
-        } else {
-            throw new RuntimeException("Unable to retrieve Secret content");
+        return toText(lookupSecret(secretKey));
+    }
+
+    /**
+     * Get existing secret as UTF-8 bytes, without creating a {@code String} of its value. The returned array is
+     * owned by the caller, which should wipe it once the secret is no longer needed.
+     *
+     * @param secretKey name of the secret
+     * @return secretValue of the retrieved secret
+     * @see #getSecret(String)
+     */
+    public byte[] getSecretBytes(String secretKey) {
+        return lookupSecret(secretKey).bytes();
+    }
+
+    /**
+     * Get existing secret as chars, without creating a {@code String} of its value. The returned array is owned
+     * by the caller, which should wipe it once the secret is no longer needed.
+     *
+     * @param secretKey name of the secret
+     * @return secretValue of the retrieved secret
+     * @see #getSecret(String)
+     */
+    public char[] getSecretChars(String secretKey) {
+        SecretValue value = lookupSecret(secretKey);
+        try {
+            return SecretBytes.toChars(value.bytes());
+        } finally {
+            value.wipe();
         }
     }
 
+    /**
+     * Get existing secret without blocking the caller. The vault is called on a dedicated executor, cached
+     * values complete immediately.
+     *
+     * @param secretKey name of the secret
+     * @return completion stage of the secretValue of the retrieved secret
+     */
+    public CompletionStage<String> getSecretAsync(String secretKey) {
+        return lookupSecretAsync(secretKey, true).thenApply(SecretsProvider::toText);
+    }
+
+    /**
+     * Get existing secret as UTF-8 bytes without blocking the caller. The array the stage completes with is owned
+     * by the caller, which should wipe it once the secret is no longer needed.
+     *
+     * @param secretKey name of the secret
+     * @return completion stage of the secretValue of the retrieved secret
+     * @see #getSecretAsync(String)
+     */
+    public CompletionStage<byte[]> getSecretBytesAsync(String secretKey) {
+        return lookupSecretAsync(secretKey, true).thenApply(SecretValue::bytes);
+    }
+
+    /**
+     * Get a specific version of a secret, or the version that is in a rotation stage. Versions never change, so
+     * they are cached without expiring, while the version a stage points to is fetched from the vault on every call.
+     *
+     * @param secretRef reference to the secret version
+     * @return secretValue of the retrieved secret
+     * @see #getSecret(String)
+     */
+    public String getSecret(SecretRef secretRef) {
+        if (secretRef.isCurrent()) {
+            return getSecret(secretRef.name());
+        }
+        return toText(lookupVersion(secretRef));
+    }
+
+    /**
+     * Get a specific version of a secret, or the version that is in a rotation stage, as UTF-8 bytes without
+     * blocking the caller. The array the stage completes with is owned by the caller, which should wipe it once
+     * the secret is no longer needed.
+     *
+     * @param secretRef reference to the secret version
+     * @return completion stage of the secretValue of the retrieved secret
+     * @see #getSecret(SecretRef)
+     */
+    public CompletionStage<byte[]> getSecretBytesAsync(SecretRef secretRef) {
+        return getSecretValueAsync(secretRef).thenApply(SecretValue::bytes);
+    }
+
+    /**
+     * Get a secret together with the number of the retrieved version, without blocking the caller. The value the
+     * stage completes with is owned by the caller, which should wipe it once the secret is no longer needed.
+     *
+     * @param secretRef reference to the secret, or to one of its versions
+     * @return completion stage of the retrieved secret value
+     * @see #getSecretBytesAsync(SecretRef)
+     */
+    public CompletionStage<SecretValue> getSecretValueAsync(SecretRef secretRef) {
+        return secretRef.isCurrent() ? lookupSecretAsync(secretRef.name(), true) : lookupVersionAsync(secretRef);
+    }
+
+    /**
+     * Get several existing secrets. Secrets that are not cached are fetched from the vault in parallel, with at most
+     * {@code oci.vault.batch.concurrency} calls in flight at a time.
+     *
+     * @param secretKeys names of the secrets
+     * @return result of each distinct secret name, in the order of the provided names
+     */
+    public Map<String, SecretResult> getSecrets(Collection<String> secretKeys) {
+        return getSecretsAsync(secretKeys).toCompletableFuture().join();
+    }
+
+    /**
+     * Get several existing secrets without blocking the caller.
+     *
+     * @param secretKeys names of the secrets
+     * @return completion stage of the result of each distinct secret name, in the order of the provided names
+     * @see #getSecrets(Collection)
+     */
+    public CompletionStage<Map<String, SecretResult>> getSecretsAsync(Collection<String> secretKeys) {
+        return fetchSecretsAsync(secretKeys, true);
+    }
+
+    /**
+     * Get several secrets the application loads on its own, e.g. to prefetch them, without counting them as
+     * requests in the access statistics.
+     *
+     * @param secretKeys names of the secrets
+     * @return completion stage of the result of each distinct secret name, in the order of the provided names
+     * @see #getSecretsAsync(Collection)
+     */
+    CompletionStage<Map<String, SecretResult>> prefetchSecretsAsync(Collection<String> secretKeys) {
+        return fetchSecretsAsync(secretKeys, false);
+    }
+
+    /**
+     * Get the current version of a secret the application loads on its own, e.g. to report it to watchers,
+     * without counting it as a request in the access statistics.
+     *
+     * @param secretKey name of the secret
+     * @return completion stage of the retrieved secret value, owned by the caller
+     * @see #getSecretValueAsync(SecretRef)
+     */
+    CompletionStage<SecretValue> currentVersionAsync(String secretKey) {
+        return lookupSecretAsync(secretKey, false);
+    }
+
+    private CompletionStage<Map<String, SecretResult>> fetchSecretsAsync(Collection<String> secretKeys,
+                                                                          boolean countRequests) {
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(secretKeys));
+        Map<String, SecretResult> results = new ConcurrentHashMap<>();
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(batchConcurrency, names.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = fetchRemaining(names, next, results, countRequests);
+        }
+        return CompletableFuture.allOf(workers).thenApply(ignored -> {
+            Map<String, SecretResult> ordered = new LinkedHashMap<>();
+            names.forEach(name -> ordered.put(name, results.get(name)));
+            return ordered;
+        });
+    }
+
+    /**
+     * Remove a secret from the cache, so that the next retrieval fetches it from the vault.
+     *
+     * @param secretKey name of the secret
+     * @return {@code true} if the secret was cached
+     */
+    public boolean evictSecret(String secretKey) {
+        return secretsCache.evict(secretKey);
+    }
+
+    /**
+     * Cache used for retrieved secrets.
+     *
+     * @return secrets cache
+     */
+    public SecretsCache cache() {
+        return secretsCache;
+    }
+
+    /**
+     * Requests and vault fetches of each secret.
+     *
+     * @return secret access statistics
+     */
+    public SecretAccessStats accessStats() {
+        return secretAccessStats;
+    }
+
+    /**
+     * Notifications of rotated secrets. Secrets with subscribers are kept up to date by the background refresh.
+     *
+     * @return secret rotations
+     */
+    public SecretRotations rotations() {
+        return secretRotations;
+    }
+
     /**
      * Create a new secret.
      *
@@ -94,11 +431,175 @@ public class SecretsProvider {
      * @return OCID of the created secret
      */
     public String createSecret(String secretKey, String secretText) {
-        SecretContentDetails content = Base64SecretContentDetails.builder()
-                .content(Base64Value.create(secretText).toBase64())
-                .build();
+        return createSecret(secretKey, secretText, null);
+    }
+
+    /**
+     * Create a new secret without blocking the caller. The vault is called on a dedicated executor.
+     *
+     * @param secretKey name of the secret
+     * @param secretText secret content
+     * @return completion stage of the OCID of the created secret
+     */
+    public CompletionStage<String> createSecretAsync(String secretKey, String secretText) {
+        Span parent = secretsTracing.activeSpan();
+        return CompletableFuture.supplyAsync(() -> createSecret(secretKey, secretText, parent), vaultExecutor());
+    }
+
+    /**
+     * Create several secrets. Secrets are created in parallel, with at most {@code oci.vault.batch.write-concurrency}
+     * calls in flight at a time. A secret that already exists in the vault is updated with the new value instead, so
+     * that a batch can be safely repeated.
+     *
+     * @param secrets secret contents by secret name
+     * @return result of each secret, in the order of the provided secrets
+     */
+    public Map<String, SecretWriteResult> createSecrets(Map<String, String> secrets) {
+        return createSecretsAsync(secrets).toCompletableFuture().join();
+    }
+
+    /**
+     * Create several secrets without blocking the caller.
+     *
+     * @param secrets secret contents by secret name
+     * @return completion stage of the result of each secret, in the order of the provided secrets
+     * @see #createSecrets(Map)
+     */
+    public CompletionStage<Map<String, SecretWriteResult>> createSecretsAsync(Map<String, String> secrets) {
+        Span parent = secretsTracing.activeSpan();
+        List<Map.Entry<String, String>> entries = new ArrayList<>(secrets.entrySet());
+        Map<String, SecretWriteResult> results = new ConcurrentHashMap<>();
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(batchWriteConcurrency, entries.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = writeRemaining(entries, next, results, parent);
+        }
+        return CompletableFuture.allOf(workers).thenApply(ignored -> {
+            Map<String, SecretWriteResult> ordered = new LinkedHashMap<>();
+            entries.forEach(entry -> ordered.put(entry.getKey(), results.get(entry.getKey())));
+            return ordered;
+        });
+    }
+
+    /**
+     * Open connections to every vault secrets are read from, so that the first requests do not wait for TLS
+     * handshakes. An active secret of the configured vault is looked up once and read concurrently from each vault,
+     * with the rate limits of any other read. Failures are logged and otherwise ignored.
+     *
+     * @param connections number of connections to open to each vault
+     * @return completion stage that completes once all reads are done
+     */
+    CompletableFuture<Void> warmUp(int connections) {
+        return CompletableFuture.supplyAsync(this::warmUpSecret, vaultExecutor())
+                .thenCompose(secretKey -> {
+                    List<CompletableFuture<Void>> reads = new ArrayList<>();
+                    for (VaultReplica vault : secretKey == null ? List.<VaultReplica>of() : readVaults) {
+                        GetSecretBundleByNameRequest request = GetSecretBundleByNameRequest.builder()
+                                .secretName(secretKey)
+                                .vaultId(vault.vaultId())
+                                .build();
+                        for (int i = 0; i < connections; i++) {
+                            reads.add(CompletableFuture.runAsync(() -> {
+                                try {
+                                    vaultRateLimiter.acquire(vault.vaultId(), VaultRateLimiter.Access.READ);
+                                    vault.secretsClient().getSecretBundleByName(request);
+                                } catch (RuntimeException e) {
+                                    LOGGER.log(Level.FINE, "Warm-up read from vault " + vault.name() + " failed", e);
+                                }
+                            }, vaultExecutor()));
+                        }
+                    }
+                    return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0]));
+                })
+                .exceptionally(throwable -> {
+                    LOGGER.log(Level.FINE, "Failed to look up a secret to open connections with", throwable);
+                    return null;
+                });
+    }
+
+    private String warmUpSecret() {
+        vaultRateLimiter.acquire(vaultId, VaultRateLimiter.Access.READ);
+        String secretKey = vaultsClient.listSecrets(ListSecretsRequest.builder()
+                                                            .compartmentId(vaultCompartmentId)
+                                                            .vaultId(vaultId)
+                                                            .lifecycleState(SecretSummary.LifecycleState.Active)
+                                                            .limit(1)
+                                                            .build())
+                .getItems()
+                .stream()
+                .findFirst()
+                .map(SecretSummary::getSecretName)
+                .orElse(null);
+        if (secretKey == null) {
+            LOGGER.fine("No active secret in vault " + vaultId + " to open connections with");
+        }
+        return secretKey;
+    }
+
+    @PostConstruct
+    void start() {
+        secretsMetrics.registerCache(secretsCache);
+        if (readVaults.size() > 1) {
+            secretsMetrics.registerVaults(readVaults);
+        }
+        restoreSnapshot();
+        secretsSnapshot.start(this::snapshotEntries);
+        secretsRefresher.start(this::refreshedSecrets, this::reloadSecret);
+        vaultReplicas.start(readVaults, (vault, secretKey) -> readBundle(vault, SecretRef.current(secretKey), null));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        secretsRefresher.stop();
+        vaultReplicas.stop();
+        secretsSnapshot.stop();
+        synchronized (this) {
+            if (vaultExecutor != null) {
+                vaultExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Serve the secrets of the snapshot from the cache right away, and reload them from the vault in the background.
+     */
+    private void restoreSnapshot() {
+        Map<String, SecretsSnapshot.Entry> restored = secretsSnapshot.read();
+        if (restored.isEmpty()) {
+            return;
+        }
+        restored.forEach((secretKey, entry) -> {
+            SecretValue value = entry.value();
+            secretsCache.put(secretKey, value.bytes(), value.versionNumber(), entry.age());
+            secretRotations.loaded(secretKey, value.versionNumber());
+            value.wipe();
+        });
+        LOGGER.info("Restored " + restored.size() + " secrets from snapshot, reloading them from the vault");
+        restored.keySet().forEach(secretKey -> reloadSecret(secretKey).whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                LOGGER.log(Level.FINE, "Reload of restored secret " + secretKey + " failed", throwable);
+            }
+        }));
+    }
 
-        return vaultsClient.createSecret(CreateSecretRequest.builder()
+    private Map<String, SecretsSnapshot.Entry> snapshotEntries() {
+        long now = secretsCache.now();
+        Map<String, SecretsSnapshot.Entry> entries = new LinkedHashMap<>();
+        secretsCache.entries().forEach((secretKey, cached) -> {
+            SecretValue value = copy(cached);
+            if (value != null) {
+                entries.put(secretKey, new SecretsSnapshot.Entry(value, Duration.ofNanos(now - cached.loadedAt())));
+            }
+        });
+        return entries;
+    }
+
+    private String createSecret(String secretKey, String secretText, Span parent) {
+        SecretContentDetails content = secretContent(secretText);
+
+        Span span = secretsTracing.start("secrets.createSecret", parent, secretKey, vaultId);
+        return secretsTracing.trace(span, () -> callVault("createSecret", VaultRateLimiter.Access.WRITE, secretKey, span, () -> vaultsClient
+                .createSecret(CreateSecretRequest.builder()
                         .createSecretDetails(CreateSecretDetails.builder()
                                 .secretName(secretKey)
                                 .vaultId(vaultId)
@@ -108,6 +609,559 @@ public class SecretsProvider {
                                 .build())
                         .build())
                 .getSecret()
-                .getId();
+                .getId()));
+    }
+
+    private SecretWriteResult upsertSecret(String secretKey, String secretText, Span parent) {
+        try {
+            return SecretWriteResult.created(createSecret(secretKey, secretText, parent));
+        } catch (BmcException e) {
+            if (e.getStatusCode() != 409) {
+                throw e;
+            }
+        }
+        return SecretWriteResult.updated(updateSecret(secretKey, secretText, parent));
+    }
+
+    private String updateSecret(String secretKey, String secretText, Span parent) {
+        Span span = secretsTracing.start("secrets.updateSecret", parent, secretKey, vaultId);
+        return secretsTracing.trace(span, () -> {
+            String secretId = callVault("listSecrets", VaultRateLimiter.Access.READ, secretKey, span, () -> vaultsClient
+                    .listSecrets(ListSecretsRequest.builder()
+                            .compartmentId(vaultCompartmentId)
+                            .vaultId(vaultId)
+                            .name(secretKey)
+                            .lifecycleState(SecretSummary.LifecycleState.Active)
+                            .build())
+                    .getItems())
+                    .stream()
+                    // a secret that is pending deletion keeps its name, but cannot be updated
+                    .filter(secret -> secret.getLifecycleState() == SecretSummary.LifecycleState.Active)
+                    .findFirst()
+                    .map(SecretSummary::getId)
+                    .orElseThrow(() -> new IllegalStateException("No active secret " + secretKey + " in vault " + vaultId));
+            String updatedId = callVault("updateSecret", VaultRateLimiter.Access.WRITE, secretKey, span, () -> vaultsClient
+                    .updateSecret(UpdateSecretRequest.builder()
+                            .secretId(secretId)
+                            .updateSecretDetails(UpdateSecretDetails.builder()
+                                    .secretContent(secretContent(secretText))
+                                    .build())
+                            .build())
+                    .getSecret()
+                    .getId());
+            // the cached value, if any, is the previous version now
+            secretsCache.evict(secretKey);
+            return updatedId;
+        });
+    }
+
+    private static SecretContentDetails secretContent(String secretText) {
+        return Base64SecretContentDetails.builder()
+                .content(Base64Value.create(secretText).toBase64())
+                .build();
+    }
+
+    private CompletableFuture<Void> writeRemaining(List<Map.Entry<String, String>> secrets,
+                                                   AtomicInteger next,
+                                                   Map<String, SecretWriteResult> results,
+                                                   Span parent) {
+        int index = next.getAndIncrement();
+        if (index >= secrets.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Map.Entry<String, String> secret = secrets.get(index);
+        return CompletableFuture
+                .supplyAsync(() -> upsertSecret(secret.getKey(), secret.getValue(), parent), vaultExecutor())
+                .handle((result, throwable) -> results.put(secret.getKey(), throwable == null
+                        ? result
+                        : SecretWriteResult.failure(throwable instanceof CompletionException && throwable.getCause() != null
+                                                            ? throwable.getCause()
+                                                            : throwable)))
+                .thenCompose(ignored -> writeRemaining(secrets, next, results, parent));
+    }
+
+    private List<String> refreshedSecrets() {
+        // closes the subscriptions of clients that went away, so that their secrets are no longer refreshed
+        secretRotations.heartbeat();
+        List<String> names = new ArrayList<>(secretsCache.hotSecrets());
+        names.addAll(secretRotations.watchedSecrets());
+        return names;
+    }
+
+    private void refreshAhead(String secretKey, SecretsCache.CachedSecret secret) {
+        if (secret.claimRefresh(secretsCache.now())) {
+            reloadSecret(secretKey).whenComplete((ignored, throwable) -> {
+                if (throwable != null) {
+                    secret.refreshFailed();
+                    LOGGER.log(Level.FINE, "Background refresh of secret " + secretKey + " failed", throwable);
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<Void> fetchRemaining(List<String> names,
+                                                   AtomicInteger next,
+                                                   Map<String, SecretResult> results,
+                                                   boolean countRequests) {
+        // cached secrets complete immediately, so continue in a loop instead of recursing for each of them
+        int index;
+        while ((index = next.getAndIncrement()) < names.size()) {
+            String name = names.get(index);
+            CompletableFuture<String> secret = lookupSecretAsync(name, countRequests)
+                    .thenApply(SecretsProvider::toText)
+                    .toCompletableFuture();
+            if (!secret.isDone()) {
+                return secret.handle((value, throwable) -> results.put(name, toResult(value, throwable)))
+                        .thenCompose(ignored -> fetchRemaining(names, next, results, countRequests));
+            }
+            secret.handle((value, throwable) -> results.put(name, toResult(value, throwable)));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static SecretResult toResult(String value, Throwable throwable) {
+        if (throwable == null) {
+            return SecretResult.success(value);
+        }
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return SecretResult.failure(throwable.getCause());
+        }
+        return SecretResult.failure(throwable);
+    }
+
+    /**
+     * Look up a secret, the returned array is a copy owned by the caller.
+     */
+    private SecretValue lookupSecret(String secretKey) {
+        secretAccessStats.recordRequest(secretKey);
+        Span span = secretsTracing.start("secrets.getSecret", null, secretKey, vaultId);
+        return secretsTracing.trace(span, () -> {
+            SecretValue value = cachedSecret(secretKey, span);
+            if (value != null) {
+                return value;
+            }
+            span.setTag(SecretsTracing.TAG_CACHE, "miss");
+            try {
+                SecretRef secretRef = SecretRef.current(secretKey);
+                return secretLoads.execute(secretRef, () -> loadSecret(secretRef, span));
+            } catch (VaultUnavailableException e) {
+                return staleSecret(secretKey, span, e);
+            }
+        });
+    }
+
+    private CompletionStage<SecretValue> lookupSecretAsync(String secretKey, boolean countRequest) {
+        if (countRequest) {
+            secretAccessStats.recordRequest(secretKey);
+        }
+        Span span = secretsTracing.start("secrets.getSecret", null, secretKey, vaultId);
+        return secretsTracing.traceAsync(span, () -> {
+            SecretValue value = cachedSecret(secretKey, span);
+            if (value != null) {
+                return CompletableFuture.completedFuture(value);
+            }
+            span.setTag(SecretsTracing.TAG_CACHE, "miss");
+            return loadSecretAsync(SecretRef.current(secretKey), span).exceptionally(throwable -> {
+                Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                if (cause instanceof VaultUnavailableException) {
+                    return staleSecret(secretKey, span, (VaultUnavailableException) cause);
+                }
+                throw throwable instanceof CompletionException
+                        ? (CompletionException) throwable
+                        : new CompletionException(throwable);
+            });
+        });
+    }
+
+    private SecretValue cachedSecret(String secretKey, Span span) {
+        Optional<SecretsCache.CachedSecret> cached = secretsCache.get(secretKey);
+        if (cached.isEmpty()) {
+            return null;
+        }
+        // null if the entry was evicted since the lookup, the secret is then loaded like any other miss
+        SecretValue value = copy(cached.get());
+        if (value != null) {
+            span.setTag(SecretsTracing.TAG_CACHE, "hit");
+            refreshAhead(secretKey, cached.get());
+        }
+        return value;
+    }
+
+    private SecretValue lookupVersion(SecretRef secretRef) {
+        Span span = startVersionLookup(secretRef);
+        return secretsTracing.trace(span, () -> {
+            SecretValue value = cachedVersion(secretRef, span);
+            if (value != null) {
+                return value;
+            }
+            span.setTag(SecretsTracing.TAG_CACHE, "miss");
+            return secretLoads.execute(secretRef, () -> loadSecret(secretRef, span));
+        });
+    }
+
+    private CompletionStage<SecretValue> lookupVersionAsync(SecretRef secretRef) {
+        Span span = startVersionLookup(secretRef);
+        return secretsTracing.traceAsync(span, () -> {
+            SecretValue value = cachedVersion(secretRef, span);
+            if (value != null) {
+                return CompletableFuture.completedFuture(value);
+            }
+            span.setTag(SecretsTracing.TAG_CACHE, "miss");
+            return loadSecretAsync(secretRef, span);
+        });
+    }
+
+    private Span startVersionLookup(SecretRef secretRef) {
+        secretAccessStats.recordRequest(secretRef.name());
+        Span span = secretsTracing.start("secrets.getSecret", null, secretRef.name(), vaultId);
+        span.setTag(SecretsTracing.TAG_SECRET_VERSION, secretRef.versionNumber() == null
+                ? secretRef.stage().name()
+                : secretRef.versionNumber().toString());
+        return span;
+    }
+
+    private SecretValue cachedVersion(SecretRef secretRef, Span span) {
+        // the version a stage points to changes with every rotation, only specific versions can be cached
+        if (secretRef.versionNumber() == null) {
+            return null;
+        }
+        SecretValue value = secretsCache.getVersion(secretRef.name(), secretRef.versionNumber())
+                .map(SecretsProvider::copy)
+                .orElse(null);
+        if (value != null) {
+            span.setTag(SecretsTracing.TAG_CACHE, "hit");
+        }
+        return value;
+    }
+
+    /**
+     * Reload a secret into the cache, wiping the copy of the value handed to this caller.
+     */
+    private CompletableFuture<Void> reloadSecret(String secretKey) {
+        return loadSecretAsync(SecretRef.current(secretKey), null).thenAccept(SecretValue::wipe);
+    }
+
+    private CompletableFuture<SecretValue> loadSecretAsync(SecretRef secretRef, Span parent) {
+        return secretLoads.executeAsync(secretRef, () -> CompletableFuture
+                .supplyAsync(() -> loadSecret(secretRef, parent), vaultExecutor()));
+    }
+
+    /**
+     * Load a secret from the vault into the cache. Each of the callers sharing the load gets its own copy of the
+     * returned value, which is wiped once they all have theirs.
+     */
+    private SecretValue loadSecret(SecretRef secretRef, Span parent) {
+        String secretKey = secretRef.name();
+        long start = System.nanoTime();
+        SecretBundle secretBundle;
+        try {
+            secretBundle = readBundle(secretRef, parent);
+        } finally {
+            secretAccessStats.recordFetch(secretKey, System.nanoTime() - start);
+        }
+        byte[] secretValue = decode(secretBundle);
+        Long versionNumber = secretBundle.getVersionNumber();
+        try {
+            if (secretRef.isCurrent()) {
+                SecretValue newer = secretsCache.getNewer(secretKey, versionNumber)
+                        .map(SecretsProvider::copy)
+                        .orElse(null);
+                if (newer != null) {
+                    // read from a replica that lags behind, serve the newer version that is already cached
+                    SecretBytes.wipe(secretValue);
+                    return newer;
+                }
+                if (secretsCache.put(secretKey, secretValue, versionNumber)) {
+                    LOGGER.info("Secret " + secretKey + " was rotated to version " + versionNumber);
+                }
+                secretRotations.loaded(secretKey, versionNumber);
+            } else if (versionNumber != null) {
+                secretsCache.putVersion(secretKey, versionNumber, secretValue);
+            }
+        } catch (RuntimeException | Error e) {
+            SecretBytes.wipe(secretValue);
+            throw e;
+        }
+        return new SecretValue(secretValue, versionNumber);
+    }
+
+    /**
+     * Read a secret from the first vault that is available, in the order of {@link VaultReplicas#route}.
+     */
+    private SecretBundle readBundle(SecretRef secretRef, Span parent) {
+        if (readVaults.size() == 1) {
+            return readBundle(readVaults.get(0), secretRef, parent);
+        }
+        VaultUnavailableException unavailable = null;
+        for (VaultReplica vault : VaultReplicas.route(readVaults, secretRef.name(), vaultCallPolicy::isOpen)) {
+            try {
+                return readBundle(vault, secretRef, parent);
+            } catch (VaultUnavailableException e) {
+                if (unavailable == null) {
+                    unavailable = e;
+                } else {
+                    unavailable.addSuppressed(e);
+                }
+                LOGGER.log(Level.FINE, "Vault " + vault.name() + " is unavailable to read secret " + secretRef, e);
+            }
+        }
+        throw unavailable;
+    }
+
+    private SecretBundle readBundle(VaultReplica vault, SecretRef secretRef, Span parent) {
+        GetSecretBundleByNameRequest.Builder request = GetSecretBundleByNameRequest.builder()
+                .secretName(secretRef.name())
+                .vaultId(vault.vaultId());
+        if (secretRef.versionNumber() != null) {
+            request.versionNumber(secretRef.versionNumber());
+        }
+        if (secretRef.stage() != null) {
+            request.stage(bundleStage(secretRef.stage()));
+        }
+        return callVault("getSecretBundleByName",
+                         VaultRateLimiter.Access.READ,
+                         vault.vaultId(),
+                         secretRef.name(),
+                         parent,
+                         () -> readVaults.size() == 1
+                                 ? vault.secretsClient().getSecretBundleByName(request.build()).getSecretBundle()
+                                 : timeReplicaCall(vault, () -> vault.secretsClient()
+                                         .getSecretBundleByName(request.build())
+                                         .getSecretBundle()));
+    }
+
+    /**
+     * Executor of the asynchronous vault calls, created on the first of them.
+     */
+    private ExecutorService vaultExecutor() {
+        ExecutorService executor = vaultExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = vaultExecutor;
+                if (executor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    executor = Executors.newFixedThreadPool(executorThreads, runnable -> {
+                        Thread thread = new Thread(runnable, "secrets-vault-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    vaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Record the latency of a single call to a replica, without rate limit waits and retry delays.
+     */
+    private static <T> T timeReplicaCall(VaultReplica vault, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            vault.recordLatency(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            if (VaultCallPolicy.isDegraded(e)) {
+                vault.recordFailure(System.nanoTime() - start);
+            } else {
+                // the replica answered, e.g. that the secret does not exist
+                vault.recordLatency(System.nanoTime() - start);
+            }
+            throw e;
+        }
+    }
+
+    private static GetSecretBundleByNameRequest.Stage bundleStage(SecretRef.Stage stage) {
+        switch (stage) {
+        case CURRENT:
+            return GetSecretBundleByNameRequest.Stage.Current;
+        case PENDING:
+            return GetSecretBundleByNameRequest.Stage.Pending;
+        case LATEST:
+            return GetSecretBundleByNameRequest.Stage.Latest;
+        case PREVIOUS:
+            return GetSecretBundleByNameRequest.Stage.Previous;
+        case DEPRECATED:
+            return GetSecretBundleByNameRequest.Stage.Deprecated;
+        default:
+            throw new IllegalArgumentException("Unsupported secret stage: " + stage);
+        }
+    }
+
+    private SecretValue staleSecret(String secretKey, Span span, VaultUnavailableException e) {
+        SecretValue stale = secretsCache.getStale(secretKey)
+                .map(SecretsProvider::copy)
+                .orElseThrow(() -> e);
+        span.setTag(SecretsTracing.TAG_CACHE, "stale");
+        LOGGER.log(Level.FINE, "Serving stale value of secret " + secretKey, e);
+        return stale;
+    }
+
+    private <T> T callVault(String operation,
+                            VaultRateLimiter.Access access,
+                            String secretKey,
+                            Span parent,
+                            Supplier<T> call) {
+        return callVault(operation, access, vaultId, secretKey, parent, call);
+    }
+
+    private <T> T callVault(String operation,
+                            VaultRateLimiter.Access access,
+                            String calledVaultId,
+                            String secretKey,
+                            Span parent,
+                            Supplier<T> call) {
+        Span span = secretsTracing.start("oci.vault." + operation, parent, secretKey, calledVaultId);
+        return secretsTracing.trace(span, () -> {
+            // wait for the rate limit outside of the bulkhead, so that throttled calls do not hold its permits
+            vaultRateLimiter.acquire(calledVaultId, access);
+            // only reads are idempotent, a write that failed with a server error may have been applied
+            return vaultCallPolicy.call(
+                    calledVaultId,
+                    access == VaultRateLimiter.Access.READ,
+                    () -> secretsMetrics.timeVaultCall(operation, call),
+                    retry -> {
+                        span.setTag(SecretsTracing.TAG_RETRY_COUNT, retry);
+                        vaultRateLimiter.acquire(calledVaultId, access);
+                    });
+        });
+    }
+
+    /**
+     * Copy of a cached value owned by the caller, {@code null} if the entry was evicted since the lookup.
+     */
+    private static SecretValue copy(SecretsCache.CachedSecret cached) {
+        byte[] value = cached.copy();
+        return value == null ? null : new SecretValue(value, cached.versionNumber());
+    }
+
+    /**
+     * Copy of a loaded value owned by the caller.
+     */
+    private static SecretValue copy(SecretValue value) {
+        return new SecretValue(value.bytes().clone(), value.versionNumber());
+    }
+
+    private static String toText(SecretValue value) {
+        try {
+            return new String(value.bytes(), StandardCharsets.UTF_8);
+        } finally {
+            value.wipe();
+        }
+    }
+
+    private static byte[] decode(SecretBundle secretBundle) {
+        SecretBundleContentDetails content = secretBundle.getSecretBundleContent();
+        if (content != null && content instanceof Base64SecretBundleContentDetails) {
+            return SecretBytes.decodeBase64(((Base64SecretBundleContentDetails) content).getContent());
+        } else {
+            throw new RuntimeException("Unable to retrieve Secret content");
+        }
+    }
+
+    /**
+     * Builder of a {@link SecretsProvider}.
+     */
+    static final class Builder {
+        private final Secrets secretsClient;
+        private final Vaults vaultsClient;
+        private final String vaultId;
+        private final String vaultCompartmentId;
+        private final String vaultKeyId;
+        private SecretsCache secretsCache;
+        private int executorThreads = DEFAULT_EXECUTOR_THREADS;
+        private int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+        private int batchWriteConcurrency = DEFAULT_BATCH_WRITE_CONCURRENCY;
+        private SecretsRefresher secretsRefresher = SecretsRefresher.disabled();
+        private SecretsMetrics secretsMetrics = SecretsMetrics.disabled();
+        private SecretsTracing secretsTracing = SecretsTracing.disabled();
+        private VaultCallPolicy vaultCallPolicy = VaultCallPolicy.disabled();
+        private VaultRateLimiter vaultRateLimiter = VaultRateLimiter.disabled();
+        private SecretRotations secretRotations;
+        private VaultReplicas vaultReplicas = VaultReplicas.disabled();
+        private SecretsSnapshot secretsSnapshot = SecretsSnapshot.disabled();
+        private SecretAccessStats secretAccessStats;
+
+        private Builder(Secrets secretsClient,
+                        Vaults vaultsClient,
+                        String vaultId,
+                        String vaultCompartmentId,
+                        String vaultKeyId) {
+            this.secretsClient = secretsClient;
+            this.vaultsClient = vaultsClient;
+            this.vaultId = vaultId;
+            this.vaultCompartmentId = vaultCompartmentId;
+            this.vaultKeyId = vaultKeyId;
+        }
+
+        Builder secretsCache(SecretsCache secretsCache) {
+            this.secretsCache = secretsCache;
+            return this;
+        }
+
+        Builder executorThreads(int executorThreads) {
+            this.executorThreads = executorThreads;
+            return this;
+        }
+
+        Builder batchConcurrency(int batchConcurrency) {
+            this.batchConcurrency = batchConcurrency;
+            return this;
+        }
+
+        Builder batchWriteConcurrency(int batchWriteConcurrency) {
+            this.batchWriteConcurrency = batchWriteConcurrency;
+            return this;
+        }
+
+        Builder secretsRefresher(SecretsRefresher secretsRefresher) {
+            this.secretsRefresher = secretsRefresher;
+            return this;
+        }
+
+        Builder secretsMetrics(SecretsMetrics secretsMetrics) {
+            this.secretsMetrics = secretsMetrics;
+            return this;
+        }
+
+        Builder secretsTracing(SecretsTracing secretsTracing) {
+            this.secretsTracing = secretsTracing;
+            return this;
+        }
+
+        Builder vaultCallPolicy(VaultCallPolicy vaultCallPolicy) {
+            this.vaultCallPolicy = vaultCallPolicy;
+            return this;
+        }
+
+        Builder vaultRateLimiter(VaultRateLimiter vaultRateLimiter) {
+            this.vaultRateLimiter = vaultRateLimiter;
+            return this;
+        }
+
+        Builder secretRotations(SecretRotations secretRotations) {
+            this.secretRotations = secretRotations;
+            return this;
+        }
+
+        Builder vaultReplicas(VaultReplicas vaultReplicas) {
+            this.vaultReplicas = vaultReplicas;
+            return this;
+        }
+
+        Builder secretsSnapshot(SecretsSnapshot secretsSnapshot) {
+            this.secretsSnapshot = secretsSnapshot;
+            return this;
+        }
+
+        Builder secretAccessStats(SecretAccessStats secretAccessStats) {
+            this.secretAccessStats = secretAccessStats;
+            return this;
+        }
+
+        SecretsProvider build() {
+            return new SecretsProvider(this);
+        }
     }
 }
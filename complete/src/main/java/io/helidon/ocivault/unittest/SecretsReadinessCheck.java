@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Readiness check that reports DOWN until all secrets listed in {@code oci.vault.prefetch} are loaded.
+ */
+@Readiness
+@ApplicationScoped
+public class SecretsReadinessCheck implements HealthCheck {
+    private final SecretsPrefetcher secretsPrefetcher;
+
+    /**
+     * Create a new readiness check.
+     *
+     * @param secretsPrefetcher prefetcher of the configured secrets
+     */
+    @Inject
+    public SecretsReadinessCheck(SecretsPrefetcher secretsPrefetcher) {
+        this.secretsPrefetcher = secretsPrefetcher;
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        return HealthCheckResponse.named("secrets")
+                .state(secretsPrefetcher.isComplete())
+                .withData("pending", String.join(",", secretsPrefetcher.pending()))
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Periodically reloads hot secrets in the background, so that callers keep being served from the cache and
+ * rotated secrets are picked up within {@code interval + jitter}.
+ *
+ * Hot secrets are the configured {@code oci.vault.refresh.secrets} and every cached secret that was read since it
+ * was last loaded. The reload of each secret is delayed by a random amount of up to {@code jitter}, so that the
+ * vault calls of a refresh cycle are spread over time.
+ */
+@ApplicationScoped
+public class SecretsRefresher {
+    private static final Logger LOGGER = Logger.getLogger(SecretsRefresher.class.getName());
+
+    private final Duration interval;
+    private final Duration jitter;
+    private final List<String> secrets;
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * Create a new secrets refresher using the settings from configuration.
+     *
+     * @param interval time between two refresh cycles, {@code PT0S} disables the refresh
+     * @param jitter maximal random delay of the reload of a single secret within a cycle
+     * @param config configuration to read the names of secrets to keep loaded even if they were not read yet
+     */
+    @Inject
+    public SecretsRefresher(@ConfigProperty(name = "oci.vault.refresh.interval", defaultValue = "PT1M") Duration interval,
+                            @ConfigProperty(name = "oci.vault.refresh.jitter", defaultValue = "PT10S") Duration jitter,
+                            Config config) {
+        this(interval, jitter, config.getOptionalValue("oci.vault.refresh.secrets", String[].class)
+                .map(Arrays::asList)
+                .orElse(Collections.emptyList()));
+    }
+
+    SecretsRefresher(Duration interval, Duration jitter, List<String> secrets) {
+        this.interval = interval;
+        this.jitter = jitter.compareTo(interval) > 0 ? interval : jitter;
+        this.secrets = secrets;
+    }
+
+    /**
+     * Create a refresher that never runs.
+     *
+     * @return disabled secrets refresher
+     */
+    static SecretsRefresher disabled() {
+        return new SecretsRefresher(Duration.ZERO, Duration.ZERO, Collections.emptyList());
+    }
+
+    /**
+     * Whether secrets are refreshed in the background.
+     *
+     * @return {@code true} if the refresh is enabled
+     */
+    public boolean isEnabled() {
+        return !interval.isZero() && !interval.isNegative();
+    }
+
+    /**
+     * Start the periodic refresh.
+     *
+     * @param hotSecrets supplier of the names of cached secrets that are in use
+     * @param reload reloads a single secret from the vault
+     */
+    synchronized void start(Supplier<List<String>> hotSecrets, Function<String, CompletionStage<?>> reload) {
+        if (!isEnabled() || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "secrets-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(() -> refresh(hotSecrets.get(), reload),
+                                      intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic refresh.
+     */
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Run a single refresh cycle, reloading each hot secret after a random delay of up to the configured jitter.
+     *
+     * @param hotSecrets names of cached secrets that are in use
+     * @param reload reloads a single secret from the vault
+     * @return names of the refreshed secrets
+     */
+    Set<String> refresh(List<String> hotSecrets, Function<String, CompletionStage<?>> reload) {
+        Set<String> names = new LinkedHashSet<>(secrets);
+        names.addAll(hotSecrets);
+        long jitterMillis = jitter.toMillis();
+        for (String name : names) {
+            long delay = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis) : 0;
+            Runnable task = () -> reload.apply(name).whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    LOGGER.log(Level.FINE, "Background refresh of secret " + name + " failed", throwable);
+                }
+            });
+            ScheduledExecutorService current = scheduler;
+            if (delay == 0 || current == null) {
+                task.run();
+            } else {
+                current.schedule(task, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        return names;
+    }
+}
@@ -15,12 +15,64 @@
  */
 package io.helidon.ocivault.unittest;
 
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonString;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
  * A simple JAX-RS resource to allow retrieval or creation of OCI vault secrets. Examples:
@@ -28,40 +80,154 @@ import javax.ws.rs.PathParam;
  * Get existing secret
  * curl -X GET http://localhost:8080/secret/SecretKey
  *
+ * Get a specific version of a secret, or the version in a rotation stage
+ * curl -X GET http://localhost:8080/secret/SecretKey?version=2
+ * curl -X GET http://localhost:8080/secret/SecretKey?stage=PREVIOUS
+ *
  * Create a new secret
  * curl -X PUT -H -d 'SecretValue' http://localhost:8080/secret/SecretKey
  *
- * The response is returned as a String object.
+ * Get several existing secrets at once
+ * curl -X POST -H 'Content-Type: application/json' -d '["SecretKey1","SecretKey2"]' http://localhost:8080/secret/_batch
+ *
+ * Create or update several secrets at once
+ * curl -X PUT -H 'Content-Type: application/json' -d '{"SecretKey1":"Value1","SecretKey2":"Value2"}' http://localhost:8080/secret/_batch
+ *
+ * Watch secrets for rotation, as a stream of server-sent events
+ * curl -N http://localhost:8080/secret/_events?name=SecretKey1&name=SecretKey2
+ *
+ * Show the most requested secrets
+ * curl -X GET http://localhost:8080/secret/_stats?limit=10
+ *
+ * Show cache statistics of a secret
+ * curl -X GET http://localhost:8080/secret/SecretKey/cache
+ *
+ * Evict a secret from the cache
+ * curl -X DELETE http://localhost:8080/secret/SecretKey/cache
+ *
+ * The names {@code _batch}, {@code _events} and {@code _stats} are reserved for the paths above, secrets with those
+ * names cannot be created, as they could not be retrieved.
+ *
+ * The response is returned as a String object. Vault calls do not block the server worker threads, a call that
+ * takes longer than {@code oci.vault.request-timeout} is answered with 504 Gateway Timeout, and a vault that is
+ * unavailable, with no cached value to fall back to, with 503 Service Unavailable. Calls that would exceed the
+ * configured vault rate limit are answered with 429 Too Many Requests.
+ *
+ * Secret values carry an ETag derived from the secret version, so clients polling for rotation can send
+ * {@code If-None-Match} and are answered with 304 Not Modified while the secret is unchanged, and a private
+ * {@code Cache-Control} max-age of {@code oci.vault.http.cache-max-age}.
  */
 @Path("/secret")
 @ApplicationScoped
 public class SecretsResource {
+    private static final MediaType TEXT_PLAIN_UTF_8 = MediaType.TEXT_PLAIN_TYPE.withCharset("UTF-8");
+    private static final String ENTITY_TAG_MAC = "HmacSHA256";
+    private static final Set<String> RESERVED_NAMES = Set.of("_batch", "_events", "_stats");
+
     /**
-     * The greeting message provider.
+     * The provider of secrets from OCI Vault.
      */
     private SecretsProvider secretsProvider;
+    private final Duration requestTimeout;
+    private final CacheControl cacheControl;
+    private final SecretKeySpec entityTagKey;
 
     /**
      * Using constructor injection instantiate OCI vault and secret clients and gets various configuration properties.
      * By default this gets the value from META-INF/microprofile-config
      *
      * @param secretsProvider the provider of secrets from OCI Vault
+     * @param requestTimeout maximal time to wait for a vault call
+     * @param cacheMaxAge time clients may use a returned secret value without revalidating it
      */
     @Inject
-    public SecretsResource(SecretsProvider secretsProvider) {
+    public SecretsResource(SecretsProvider secretsProvider,
+                           @ConfigProperty(name = "oci.vault.request-timeout", defaultValue = "PT10S") Duration requestTimeout,
+                           @ConfigProperty(name = "oci.vault.http.cache-max-age", defaultValue = "PT0S") Duration cacheMaxAge) {
         this.secretsProvider = secretsProvider;
+        this.requestTimeout = requestTimeout;
+        this.cacheControl = new CacheControl();
+        this.cacheControl.setPrivate(true);
+        this.cacheControl.setMaxAge((int) Math.min(Integer.MAX_VALUE, Math.max(0, cacheMaxAge.toSeconds())));
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.entityTagKey = new SecretKeySpec(key, ENTITY_TAG_MAC);
+    }
+
+    /**
+     * Create a new resource that lets clients cache secret values only after revalidating them.
+     *
+     * @param secretsProvider the provider of secrets from OCI Vault
+     * @param requestTimeout maximal time to wait for a vault call
+     */
+    public SecretsResource(SecretsProvider secretsProvider, Duration requestTimeout) {
+        this(secretsProvider, requestTimeout, Duration.ZERO);
+    }
+
+    /**
+     * Create a new resource with the default request timeout.
+     *
+     * @param secretsProvider the provider of secrets from OCI Vault
+     */
+    public SecretsResource(SecretsProvider secretsProvider) {
+        this(secretsProvider, Duration.ofSeconds(10));
     }
 
     /**
      * Return a secret value using secretName that was provided.
      *
-     * @param secretName the name to greet
+     * @param secretName name of the secret
      * @return secretValue of the retrieved secret
      */
+    public String getSecret(String secretName) {
+        return secretsProvider.getSecret(secretName);
+    }
+
+    /**
+     * Return the current value of a secret, without blocking the calling thread.
+     *
+     * @param secretName name of the secret
+     * @return response with the secretValue of the retrieved secret
+     * @see #getSecretAsync(String, Long, String, String)
+     */
+    public CompletionStage<Response> getSecretAsync(String secretName) {
+        return getSecretAsync(secretName, null, null, null);
+    }
+
+    /**
+     * Return a secret value using secretName that was provided, optionally of a specific version or of the version
+     * in a rotation stage. The value is streamed from its bytes, which are wiped once written, without creating a
+     * {@code String} of it. If the retrieved version matches {@code If-None-Match}, 304 Not Modified is returned
+     * without the value.
+     *
+     * @param secretName the name to greet
+     * @param version version number of the secret, {@code null} for the current version
+     * @param stage rotation stage of the secret, such as {@code PREVIOUS} or {@code PENDING}
+     * @param ifNoneMatch entity tags of the values the client already has
+     * @return response with the secretValue of the retrieved secret
+     */
     @Path("/{secretName}")
     @GET
-    public String getSecret(@PathParam("secretName") String secretName) {
-        return secretsProvider.getSecret(secretName);
+    public CompletionStage<Response> getSecretAsync(@PathParam("secretName") String secretName,
+                                                    @QueryParam("version") Long version,
+                                                    @QueryParam("stage") String stage,
+                                                    @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        SecretRef secretRef = secretRef(secretName, version, stage);
+        return withTimeout(secretsProvider.getSecretValueAsync(secretRef), SecretValue::wipe)
+                .thenApply(value -> {
+                    EntityTag entityTag = entityTag(value);
+                    if (matches(ifNoneMatch, entityTag)) {
+                        value.wipe();
+                        return Response.notModified(entityTag).cacheControl(cacheControl).build();
+                    }
+                    return Response.ok((StreamingOutput) output -> {
+                        try {
+                            output.write(value.bytes());
+                        } finally {
+                            value.wipe();
+                        }
+                    }, TEXT_PLAIN_UTF_8).tag(entityTag).cacheControl(cacheControl).build();
+                });
     }
 
     /**
@@ -71,9 +237,341 @@ public class SecretsResource {
      * @param secretText secret content
      * @return OCID of the created secret
      */
+    public String createSecret(String secretName, String secretText) {
+        checkNotReserved(List.of(secretName));
+        return secretsProvider.createSecret(secretName, secretText);
+    }
+
+    /**
+     * Create a new secret, without blocking the calling thread.
+     *
+     * @param secretName name of the secret
+     * @param secretText secret content
+     * @return OCID of the created secret
+     */
     @POST
     @Path("/{secretName}")
-    public String createSecret(@PathParam("secretName") String secretName, String secretText) {
-        return secretsProvider.createSecret(secretName, secretText);
+    public CompletionStage<String> createSecretAsync(@PathParam("secretName") String secretName, String secretText) {
+        checkNotReserved(List.of(secretName));
+        return withTimeout(secretsProvider.createSecretAsync(secretName, secretText));
+    }
+
+    /**
+     * Return the values of several secrets. Secrets that could not be retrieved are reported with an error
+     * instead of failing the whole request.
+     *
+     * @param secretNames JSON array of secret names
+     * @return JSON object with either a value or an error for each secret name
+     */
+    @POST
+    @Path("/_batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<JsonObject> getSecrets(JsonArray secretNames) {
+        List<String> names;
+        try {
+            names = secretNames.getValuesAs(JsonString.class)
+                    .stream()
+                    .map(JsonString::getString)
+                    .collect(Collectors.toList());
+        } catch (ClassCastException e) {
+            throw new BadRequestException("Expecting a JSON array of secret names");
+        }
+        return withTimeout(secretsProvider.getSecretsAsync(names)
+                                   .thenApply(results -> {
+                                       JsonObjectBuilder json = Json.createObjectBuilder();
+                                       results.forEach((name, result) -> json.add(name, result.isSuccess()
+                                               ? Json.createObjectBuilder().add("value", result.value())
+                                               : Json.createObjectBuilder().add("error", result.error())));
+                                       return json.build();
+                                   }));
+    }
+
+    /**
+     * Create several secrets, updating the ones that already exist. Secrets that could not be written are reported
+     * with an error instead of failing the whole request. The request is not subject to
+     * {@code oci.vault.request-timeout}, as large batches are expected to take longer than a single vault call.
+     *
+     * @param secrets JSON object of secret names and contents
+     * @return JSON object with the status and either the OCID or an error for each secret name
+     */
+    @PUT
+    @Path("/_batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<JsonObject> createSecrets(JsonObject secrets) {
+        Map<String, String> values = new LinkedHashMap<>();
+        try {
+            secrets.forEach((name, value) -> values.put(name, ((JsonString) value).getString()));
+        } catch (ClassCastException e) {
+            throw new BadRequestException("Expecting a JSON object of secret names and contents");
+        }
+        checkNotReserved(values.keySet());
+        return secretsProvider.createSecretsAsync(values)
+                .thenApply(results -> {
+                    JsonObjectBuilder json = Json.createObjectBuilder();
+                    results.forEach((name, result) -> {
+                        JsonObjectBuilder item = Json.createObjectBuilder()
+                                .add("status", result.status().name().toLowerCase(Locale.ROOT));
+                        json.add(name, result.isSuccess()
+                                ? item.add("id", result.secretId())
+                                : item.add("error", result.error()));
+                    });
+                    return json.build();
+                });
+    }
+
+    /**
+     * Stream rotations of secrets as server-sent events. A {@code current} event with the current version of each
+     * secret is sent first, followed by a {@code rotated} event with the new version whenever the background refresh
+     * loads a new version of one of the secrets. Events carry the secret name and version, never its value. A
+     * {@code heartbeat} comment is sent on every background refresh, and the stream is closed once the client went away.
+     *
+     * @param secretNames names of the secrets to watch
+     * @param eventSink sink of the events sent to the client
+     * @param sse factory of events
+     */
+    @GET
+    @Path("/_events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void watchSecrets(@QueryParam("name") List<String> secretNames,
+                             @Context SseEventSink eventSink,
+                             @Context Sse sse) {
+        if (secretNames == null || secretNames.isEmpty()) {
+            throw new BadRequestException("Expecting at least one secret name");
+        }
+        AtomicReference<SecretRotations.Subscription> subscription = new AtomicReference<>();
+        Runnable unsubscribe = () -> {
+            SecretRotations.Subscription current = subscription.get();
+            if (current != null) {
+                current.close();
+            }
+        };
+        BiConsumer<String, JsonObject> send = (event, data) -> {
+            if (eventSink.isClosed()) {
+                unsubscribe.run();
+                return;
+            }
+            eventSink.send(sse.newEventBuilder().name(event).data(data.toString()).build())
+                    .whenComplete((ignored, throwable) -> {
+                        if (throwable != null) {
+                            // the client went away
+                            unsubscribe.run();
+                            eventSink.close();
+                        }
+                    });
+        };
+        subscription.set(secretsProvider.rotations().subscribe(
+                secretNames,
+                (name, version) -> send.accept("rotated", versionEvent(name, version)),
+                current -> {
+                    // a client that went away is only noticed when writing to it
+                    if (eventSink.isClosed()) {
+                        current.close();
+                        return;
+                    }
+                    eventSink.send(sse.newEventBuilder().comment("heartbeat").build())
+                            .whenComplete((ignored, throwable) -> {
+                                if (throwable != null) {
+                                    current.close();
+                                    eventSink.close();
+                                }
+                            });
+                }));
+        for (String secretName : new LinkedHashSet<>(secretNames)) {
+            secretsProvider.currentVersionAsync(secretName)
+                    .whenComplete((value, throwable) -> {
+                        if (throwable == null) {
+                            value.wipe();
+                            send.accept("current", versionEvent(secretName, value.versionNumber()));
+                        } else {
+                            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                            send.accept("error", Json.createObjectBuilder()
+                                    .add("name", secretName)
+                                    .add("error", String.valueOf(cause.getMessage()))
+                                    .build());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Return the access statistics of the most requested secrets, to tune prefetching and the cache size.
+     *
+     * @param limit maximal number of secrets to return
+     * @return access statistics, most requested secret first
+     */
+    @GET
+    @Path("/_stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonArray getAccessStats(@QueryParam("limit") @DefaultValue("10") int limit) {
+        if (limit < 1) {
+            throw new BadRequestException("Invalid limit: " + limit);
+        }
+        JsonArrayBuilder json = Json.createArrayBuilder();
+        for (SecretAccessStats.SecretAccess access : secretsProvider.accessStats().top(limit)) {
+            JsonObjectBuilder secret = Json.createObjectBuilder()
+                    .add("name", access.secretName())
+                    .add("requests", access.requests())
+                    .add("fetches", access.fetches())
+                    .add("averageFetchMillis", access.averageFetchLatency().toNanos() / 1_000_000.0);
+            if (access.lastAccess() != null) {
+                secret.add("lastAccess", access.lastAccess().toString());
+            }
+            json.add(secret);
+        }
+        return json.build();
+    }
+
+    /**
+     * Return cache statistics of a secret.
+     *
+     * @param secretName name of the secret
+     * @return cache statistics
+     */
+    @GET
+    @Path("/{secretName}/cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonObject getCacheStats(@PathParam("secretName") String secretName) {
+        SecretsCache.SecretStats stats = secretsProvider.cache()
+                .stats(secretName)
+                .orElseThrow(() -> new NotFoundException("Secret " + secretName + " is not cached"));
+        JsonObjectBuilder json = Json.createObjectBuilder();
+        if (stats.versionNumber() != null) {
+            json.add("version", stats.versionNumber());
+        }
+        return json
+                .add("hits", stats.hits())
+                .add("loads", stats.loads())
+                .add("ageMillis", stats.age().toMillis())
+                .add("expiresInMillis", stats.expiresIn().toMillis())
+                .build();
+    }
+
+    /**
+     * Evict a secret from the cache, so that the next retrieval fetches it from the vault.
+     *
+     * @param secretName name of the secret
+     */
+    @DELETE
+    @Path("/{secretName}/cache")
+    public void evictSecret(@PathParam("secretName") String secretName) {
+        if (!secretsProvider.evictSecret(secretName)) {
+            throw new NotFoundException("Secret " + secretName + " is not cached");
+        }
+    }
+
+    /**
+     * Entity tag of a secret value, its version number, or if that is unknown a hash of the value keyed with a random
+     * key of this resource, so that the tag does not allow guessing the value.
+     */
+    private EntityTag entityTag(SecretValue value) {
+        if (value.versionNumber() != null) {
+            return new EntityTag("v" + value.versionNumber());
+        }
+        try {
+            Mac mac = Mac.getInstance(ENTITY_TAG_MAC);
+            mac.init(entityTagKey);
+            byte[] hash = mac.doFinal(value.bytes());
+            return new EntityTag("h" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to compute the entity tag of a secret", e);
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, EntityTag entityTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals("\"" + entityTag.getValue() + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static JsonObject versionEvent(String secretName, Long versionNumber) {
+        JsonObjectBuilder json = Json.createObjectBuilder().add("name", secretName);
+        return (versionNumber == null ? json.addNull("version") : json.add("version", versionNumber)).build();
+    }
+
+    private static void checkNotReserved(Collection<String> secretNames) {
+        List<String> reserved = secretNames.stream()
+                .filter(RESERVED_NAMES::contains)
+                .collect(Collectors.toList());
+        if (!reserved.isEmpty()) {
+            throw new BadRequestException("Secret names " + reserved + " are reserved for paths of this resource");
+        }
+    }
+
+    private static SecretRef secretRef(String secretName, Long version, String stage) {
+        if (version != null && stage != null) {
+            throw new BadRequestException("Expecting either a version or a stage, not both");
+        }
+        if (version != null) {
+            if (version < 1) {
+                throw new BadRequestException("Invalid secret version: " + version);
+            }
+            return SecretRef.version(secretName, version);
+        }
+        if (stage != null) {
+            try {
+                return SecretRef.stage(secretName, SecretRef.Stage.valueOf(stage.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Invalid secret stage: " + stage);
+            }
+        }
+        return SecretRef.current(secretName);
+    }
+
+    private <T> CompletionStage<T> withTimeout(CompletionStage<T> stage) {
+        return withTimeout(stage, value -> { });
+    }
+
+    /**
+     * Apply the request timeout to a stage. A value that completes after the timeout is not returned to anyone and is
+     * passed to {@code discard} instead, e.g. to wipe it.
+     */
+    private <T> CompletionStage<T> withTimeout(CompletionStage<T> stage, Consumer<T> discard) {
+        CompletableFuture<T> source = stage.toCompletableFuture();
+        CompletableFuture<T> timed = source.copy().orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        timed.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                source.thenAccept(discard);
+            }
+        });
+        return timed
+                .handle((value, throwable) -> {
+                    if (throwable == null) {
+                        return value;
+                    }
+                    Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    if (cause instanceof TimeoutException) {
+                        throw new WebApplicationException("Vault call timed out", Response.Status.GATEWAY_TIMEOUT);
+                    }
+                    if (cause instanceof VaultUnavailableException) {
+                        Long retryAfter = ((VaultUnavailableException) cause).retryAfter()
+                                .map(delay -> Math.max(1, delay.toSeconds()))
+                                .orElse(null);
+                        throw new ServiceUnavailableException(cause.getMessage(), retryAfter);
+                    }
+                    if (cause instanceof RateLimitExceededException) {
+                        Response.ResponseBuilder response = Response.status(Response.Status.TOO_MANY_REQUESTS)
+                                .entity(cause.getMessage());
+                        ((RateLimitExceededException) cause).retryAfter()
+                                .ifPresent(delay -> response.header(HttpHeaders.RETRY_AFTER,
+                                                                    Math.max(1, delay.toSeconds())));
+                        throw new WebApplicationException(cause, response.build());
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new CompletionException(cause);
+                });
     }
 }
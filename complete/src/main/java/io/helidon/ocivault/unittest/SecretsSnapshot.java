@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Encrypted snapshot of the cached secrets on local disk, so that a restarted application serves secrets without
+ * waiting for the vault, even while the vault is unavailable.
+ *
+ * The snapshot is written to {@code oci.vault.snapshot.path} every {@code oci.vault.snapshot.interval} and on
+ * shutdown, encrypted with AES-GCM using the base64 encoded {@code oci.vault.snapshot.key}. It is read through a
+ * memory mapping at startup, skipping secrets that were loaded from the vault longer than
+ * {@code oci.vault.snapshot.max-staleness} ago. Without a path, no snapshot is written or read.
+ */
+@ApplicationScoped
+public class SecretsSnapshot {
+    private static final Logger LOGGER = Logger.getLogger(SecretsSnapshot.class.getName());
+    private static final int MAGIC = 0x4f565353;
+    private static final byte FORMAT = 1;
+    private static final int AAD_LENGTH = Integer.BYTES + 1 + Long.BYTES;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final long NO_VERSION = Long.MIN_VALUE;
+
+    private final Path path;
+    private final SecretKeySpec key;
+    private final long maxStalenessMillis;
+    private final Duration interval;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private ScheduledExecutorService scheduler;
+    private Supplier<Map<String, Entry>> secrets;
+
+    /**
+     * Create a secrets snapshot using the settings from configuration.
+     *
+     * @param config configuration to read the path and the key of the snapshot
+     * @param maxStaleness maximal time since a secret was loaded from the vault to restore it from the snapshot
+     * @param interval time between two writes of the snapshot, {@code PT0S} to only write it on shutdown
+     */
+    @Inject
+    public SecretsSnapshot(Config config,
+                           @ConfigProperty(name = "oci.vault.snapshot.max-staleness", defaultValue = "PT24H") Duration maxStaleness,
+                           @ConfigProperty(name = "oci.vault.snapshot.interval", defaultValue = "PT5M") Duration interval) {
+        this(config.getOptionalValue("oci.vault.snapshot.path", String.class).map(Paths::get).orElse(null),
+             config.getOptionalValue("oci.vault.snapshot.key", String.class).map(Base64.getDecoder()::decode).orElse(null),
+             maxStaleness,
+             interval,
+             System::currentTimeMillis);
+    }
+
+    SecretsSnapshot(Path path, byte[] key, Duration maxStaleness, Duration interval, LongSupplier clock) {
+        if (path != null && key == null) {
+            throw new IllegalArgumentException("oci.vault.snapshot.key is required to write a secrets snapshot");
+        }
+        if (path != null && key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("oci.vault.snapshot.key must be a 128, 192 or 256 bit AES key");
+        }
+        this.path = path;
+        this.key = path == null ? null : new SecretKeySpec(key, "AES");
+        this.maxStalenessMillis = maxStaleness.toMillis();
+        this.interval = interval;
+        this.clock = clock;
+    }
+
+    /**
+     * Create a secrets snapshot that is never written or read.
+     *
+     * @return disabled secrets snapshot
+     */
+    static SecretsSnapshot disabled() {
+        return new SecretsSnapshot(null, null, Duration.ZERO, Duration.ZERO, System::currentTimeMillis);
+    }
+
+    /**
+     * Whether secrets are persisted in a snapshot.
+     *
+     * @return {@code true} if a snapshot path is configured
+     */
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * Read the secrets of the snapshot that are not older than the maximal staleness. A missing, outdated or
+     * unreadable snapshot has no secrets.
+     *
+     * @return secrets by name, their values are owned by the caller
+     */
+    Map<String, Entry> read() {
+        if (path == null) {
+            return Collections.emptyMap();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(mapped);
+        } catch (NoSuchFileException e) {
+            LOGGER.fine(() -> "No secrets snapshot at " + path);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable secrets snapshot " + path, e);
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Replace the snapshot with the given secrets. The file is only readable by its owner, if the file system
+     * supports it, and is replaced atomically.
+     *
+     * @param secrets secrets to persist by name, values are not modified
+     * @throws IOException if the snapshot could not be written
+     */
+    void write(Map<String, Entry> secrets) throws IOException {
+        if (path == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        int plainLength = Integer.BYTES;
+        for (Map.Entry<String, Entry> secret : secrets.entrySet()) {
+            plainLength += 2 * Integer.BYTES + 2 * Long.BYTES
+                    + secret.getKey().getBytes(StandardCharsets.UTF_8).length
+                    + secret.getValue().value.bytes().length;
+        }
+        ByteBuffer plain = ByteBuffer.allocateDirect(plainLength);
+        try {
+            plain.putInt(secrets.size());
+            secrets.forEach((name, entry) -> {
+                byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                byte[] value = entry.value.bytes();
+                Long versionNumber = entry.value.versionNumber();
+                plain.putInt(nameBytes.length)
+                        .put(nameBytes)
+                        .putLong(now - entry.age.toMillis())
+                        .putLong(versionNumber == null ? NO_VERSION : versionNumber)
+                        .putInt(value.length)
+                        .put(value);
+            });
+            plain.flip();
+
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            ByteBuffer file = ByteBuffer.allocate(AAD_LENGTH + IV_LENGTH + cipher.getOutputSize(plainLength));
+            file.putInt(MAGIC).put(FORMAT).putLong(now);
+            cipher.updateAAD(file.array(), 0, AAD_LENGTH);
+            file.put(iv);
+            cipher.doFinal(plain, file);
+            file.flip();
+            writeAtomically(file);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to encrypt the secrets snapshot", e);
+        } finally {
+            OffHeapSecrets.wipe(plain);
+        }
+    }
+
+    /**
+     * Start writing the snapshot periodically, and on {@link #stop()}.
+     *
+     * @param secrets supplier of the secrets to persist
+     */
+    synchronized void start(Supplier<Map<String, Entry>> secrets) {
+        if (path == null || this.secrets != null) {
+            return;
+        }
+        this.secrets = secrets;
+        if (interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "secrets-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::writeCurrent, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop writing the snapshot periodically and write it a last time.
+     */
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (secrets != null) {
+            writeCurrent();
+            secrets = null;
+        }
+    }
+
+    private synchronized void writeCurrent() {
+        if (secrets == null) {
+            return;
+        }
+        Map<String, Entry> current = secrets.get();
+        try {
+            write(current);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to write secrets snapshot " + path, e);
+        } finally {
+            current.values().forEach(entry -> entry.value.wipe());
+        }
+    }
+
+    private Map<String, Entry> read(ByteBuffer mapped) throws GeneralSecurityException {
+        if (mapped.getInt() != MAGIC || mapped.get() != FORMAT) {
+            throw new IllegalStateException("Not a secrets snapshot");
+        }
+        long now = clock.getAsLong();
+        long writtenAt = mapped.getLong();
+        if (now - writtenAt > maxStalenessMillis) {
+            LOGGER.info(() -> "Ignoring secrets snapshot " + path + " written " + Duration.ofMillis(now - writtenAt) + " ago");
+            return Collections.emptyMap();
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        mapped.get(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(mapped.duplicate().position(0).limit(AAD_LENGTH));
+        ByteBuffer plain = ByteBuffer.allocateDirect(cipher.getOutputSize(mapped.remaining()));
+        try {
+            cipher.doFinal(mapped, plain);
+            plain.flip();
+            Map<String, Entry> secrets = new LinkedHashMap<>();
+            for (int count = plain.getInt(); count > 0; count--) {
+                byte[] name = new byte[plain.getInt()];
+                plain.get(name);
+                long loadedAt = plain.getLong();
+                long versionNumber = plain.getLong();
+                byte[] value = new byte[plain.getInt()];
+                plain.get(value);
+                if (now - loadedAt > maxStalenessMillis) {
+                    SecretBytes.wipe(value);
+                } else {
+                    SecretValue secretValue = new SecretValue(value, versionNumber == NO_VERSION ? null : versionNumber);
+                    secrets.put(new String(name, StandardCharsets.UTF_8),
+                                new Entry(secretValue, Duration.ofMillis(now - loadedAt)));
+                }
+            }
+            return secrets;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Truncated secrets snapshot", e);
+        } finally {
+            OffHeapSecrets.wipe(plain);
+        }
+    }
+
+    private void writeAtomically(ByteBuffer content) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(temporary, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * A secret persisted in the snapshot.
+     */
+    static final class Entry {
+        private final SecretValue value;
+        private final Duration age;
+
+        /**
+         * Create a snapshot entry.
+         *
+         * @param value secret value
+         * @param age time since the value was loaded from the vault
+         */
+        Entry(SecretValue value, Duration age) {
+            this.value = value;
+            this.age = age;
+        }
+
+        SecretValue value() {
+            return value;
+        }
+
+        Duration age() {
+            return age;
+        }
+    }
+}
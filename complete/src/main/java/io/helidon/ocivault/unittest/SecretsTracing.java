@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.log.Fields;
+import io.opentracing.noop.NoopTracerFactory;
+import io.opentracing.tag.Tags;
+
+/**
+ * Tracing of secret operations and of the calls to OCI Vault they make.
+ *
+ * Spans are tagged with the name of the secret, never its value, the vault OCID and, for retrievals, whether the
+ * secret was served from the cache and the requested version or stage, if any. Vault calls that had to be retried
+ * carry the number of retries.
+ */
+@ApplicationScoped
+public class SecretsTracing {
+    static final String TAG_SECRET_NAME = "secret.name";
+    static final String TAG_SECRET_VERSION = "secret.version";
+    static final String TAG_VAULT_ID = "vault.id";
+    static final String TAG_CACHE = "secret.cache";
+    static final String TAG_RETRY_COUNT = "retry.count";
+
+    private final Tracer tracer;
+
+    /**
+     * Create new secrets tracing using the tracer of the application.
+     *
+     * @param tracer application tracer
+     */
+    @Inject
+    public SecretsTracing(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Create secrets tracing that does not record any spans.
+     *
+     * @return disabled secrets tracing
+     */
+    static SecretsTracing disabled() {
+        return new SecretsTracing(NoopTracerFactory.create());
+    }
+
+    /**
+     * Start a new span of a secret operation.
+     *
+     * @param operation name of the operation
+     * @param parent parent span, {@code null} to use the currently active span
+     * @param secretName name of the secret
+     * @param vaultId OCID of the vault
+     * @return started span
+     */
+    public Span start(String operation, Span parent, String secretName, String vaultId) {
+        Tracer.SpanBuilder builder = tracer.buildSpan(operation)
+                .withTag(TAG_SECRET_NAME, secretName)
+                .withTag(TAG_VAULT_ID, vaultId);
+        if (parent != null) {
+            builder.asChildOf(parent);
+        }
+        return builder.start();
+    }
+
+    /**
+     * Make a span the active span of the current thread, so that spans started by the callee become its children.
+     *
+     * @param span span to activate
+     * @return scope to close once the span is no longer active
+     */
+    public Scope activate(Span span) {
+        return tracer.activateSpan(span);
+    }
+
+    /**
+     * The currently active span.
+     *
+     * @return active span, or {@code null} if there is none
+     */
+    public Span activeSpan() {
+        return tracer.activeSpan();
+    }
+
+    /**
+     * Finish a span, marking it as failed if the operation failed.
+     *
+     * @param span span to finish
+     * @param throwable failure of the operation, {@code null} on success
+     */
+    public void finish(Span span, Throwable throwable) {
+        if (throwable != null) {
+            Tags.ERROR.set(span, true);
+            span.log(Map.of(Fields.EVENT, "error", Fields.ERROR_OBJECT, throwable));
+        }
+        span.finish();
+    }
+
+    /**
+     * Run an operation with a span being active and finish the span once the operation is done.
+     *
+     * @param span span of the operation
+     * @param operation the operation
+     * @param <T> type of the result
+     * @return result of the operation
+     */
+    public <T> T trace(Span span, Supplier<T> operation) {
+        Throwable failure = null;
+        try (Scope ignored = activate(span)) {
+            return operation.get();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            finish(span, failure);
+        }
+    }
+
+    /**
+     * Start an asynchronous operation with a span being active and finish the span once the operation completes.
+     *
+     * @param span span of the operation
+     * @param operation starts the operation
+     * @param <T> type of the result
+     * @return completion stage of the operation
+     */
+    public <T> CompletionStage<T> traceAsync(Span span, Supplier<? extends CompletionStage<T>> operation) {
+        CompletionStage<T> stage;
+        try (Scope ignored = activate(span)) {
+            stage = operation.get();
+        } catch (RuntimeException | Error e) {
+            finish(span, e);
+            throw e;
+        }
+        return stage.whenComplete((value, throwable) -> finish(span, throwable));
+    }
+}
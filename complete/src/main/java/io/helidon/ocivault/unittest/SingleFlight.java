@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesces concurrent calls for the same key into a single execution.
+ *
+ * The first caller for a key runs the supplier, all callers arriving while it is in flight wait for and share
+ * its outcome, including a failure. Nothing is retained once the call completes. Blocking and asynchronous
+ * callers of the same key are coalesced with each other.
+ *
+ * Each caller may be handed its own copy of the value, e.g. of a secret value it wipes after use. The value of the
+ * call is then released as soon as every caller got its copy.
+ *
+ * @param <K> type of the key
+ * @param <V> type of the value
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> share;
+    private final Consumer<V> release;
+
+    /**
+     * Create a single flight handing the same value to all callers.
+     */
+    SingleFlight() {
+        this(UnaryOperator.identity(), value -> { });
+    }
+
+    /**
+     * Create a single flight handing each caller its own copy of the value.
+     *
+     * @param share creates the copy of the value handed to a caller
+     * @param release releases the value of the call once all callers got their copies, and a copy no caller took
+     */
+    SingleFlight(UnaryOperator<V> share, Consumer<V> release) {
+        this.share = share;
+        this.release = release;
+    }
+
+    /**
+     * Run the supplier, or wait for the call already in flight for the same key.
+     *
+     * @param key key identifying the call
+     * @param supplier supplier of the value
+     * @return value shared by all concurrent callers
+     */
+    V execute(K key, Supplier<V> supplier) {
+        CompletableFuture<V> caller = new CompletableFuture<>();
+        Flight<V> started = new Flight<>();
+        if (join(key, started, caller)) {
+            V value;
+            try {
+                value = supplier.get();
+            } catch (RuntimeException | Error e) {
+                complete(key, started, null, e);
+                throw e;
+            }
+            complete(key, started, value, null);
+        }
+        return await(caller);
+    }
+
+    /**
+     * Start the call, or join the call already in flight for the same key, without blocking the caller.
+     *
+     * @param key key identifying the call
+     * @param call starts the asynchronous computation of the value
+     * @return completion stage of the value shared by all concurrent callers
+     */
+    CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> caller = new CompletableFuture<>();
+        Flight<V> started = new Flight<>();
+        if (join(key, started, caller)) {
+            try {
+                call.get().whenComplete((value, throwable) -> complete(key, started, value, throwable));
+            } catch (RuntimeException | Error e) {
+                complete(key, started, null, e);
+            }
+        }
+        return caller;
+    }
+
+    /**
+     * Number of calls currently in flight.
+     *
+     * @return number of distinct keys being loaded
+     */
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Number of callers waiting for the call in flight for a key, an estimate meant for monitoring and tests.
+     *
+     * @param key key identifying the call
+     * @return number of callers that joined the call, {@code 0} if there is no call in flight
+     */
+    int waiting(K key) {
+        Flight<V> flight = inFlight.get(key);
+        return flight == null ? 0 : flight.callers.size() - 1;
+    }
+
+    /**
+     * Add a caller to the call in flight for a key, or start a new call.
+     *
+     * @return {@code true} if the caller has to run the call
+     */
+    private boolean join(K key, Flight<V> started, CompletableFuture<V> caller) {
+        // callers are added while holding the lock of the key, so that none is added once the call was removed
+        Flight<V> flight = inFlight.compute(key, (k, existing) -> {
+            Flight<V> joined = existing == null ? started : existing;
+            joined.callers.add(caller);
+            return joined;
+        });
+        return flight == started;
+    }
+
+    private void complete(K key, Flight<V> flight, V value, Throwable throwable) {
+        inFlight.remove(key, flight);
+        if (throwable != null) {
+            Throwable cause = unwrap(throwable);
+            flight.callers.forEach(caller -> caller.completeExceptionally(cause));
+            return;
+        }
+        try {
+            for (CompletableFuture<V> caller : flight.callers) {
+                V copy = share.apply(value);
+                if (!caller.complete(copy)) {
+                    release.accept(copy);
+                }
+            }
+        } finally {
+            release.accept(value);
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Flight<V> {
+        private final Queue<CompletableFuture<V>> callers = new ConcurrentLinkedQueue<>();
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.oracle.bmc.model.BmcException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Fault tolerance of the calls to OCI Vault: bounded retries, a circuit breaker per vault and a bulkhead.
+ *
+ * Calls throttled by the vault ({@code 429}) are retried, and so are idempotent calls that failed with a server
+ * error or without a response. Once retries are used up, these failures are reported as
+ * {@link VaultUnavailableException}, other failures such as an unknown secret are passed on as they are. Retries
+ * are delayed using exponential backoff with decorrelated jitter, each delay is a random value between
+ * {@code delay} and three times the previous delay, capped at {@code max-delay}. The first retry is jittered as
+ * well, as if the previous delay was {@code delay}, so that clients failing together do not retry together.
+ *
+ * Each of these failures also counts towards the circuit breaker of the vault. After {@code failure-threshold}
+ * consecutive failures the breaker opens and calls fail immediately with {@link VaultUnavailableException} for
+ * {@code circuit-breaker.delay}, after which a single trial call decides whether it closes again. The bulkhead
+ * rejects calls once {@code max-concurrent} calls are in progress.
+ */
+@ApplicationScoped
+public class VaultCallPolicy {
+    private static final Logger LOGGER = Logger.getLogger(VaultCallPolicy.class.getName());
+
+    private final int maxRetries;
+    private final long delayNanos;
+    private final long maxDelayNanos;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Semaphore bulkhead;
+    private final LongSupplier clock;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new vault call policy using the settings from configuration.
+     *
+     * @param maxRetries maximal number of retries of a failed call, {@code 0} disables retries
+     * @param delay minimal delay before a retry
+     * @param maxDelay maximal delay before a retry
+     * @param failureThreshold consecutive failures that open the circuit breaker, {@code 0} disables the breaker
+     * @param openDelay time the circuit breaker stays open before a trial call is let through
+     * @param maxConcurrent maximal number of concurrent vault calls, {@code 0} disables the bulkhead
+     */
+    @Inject
+    public VaultCallPolicy(@ConfigProperty(name = "oci.vault.retry.max-retries", defaultValue = "3") int maxRetries,
+                           @ConfigProperty(name = "oci.vault.retry.delay", defaultValue = "PT0.1S") Duration delay,
+                           @ConfigProperty(name = "oci.vault.retry.max-delay", defaultValue = "PT2S") Duration maxDelay,
+                           @ConfigProperty(name = "oci.vault.circuit-breaker.failure-threshold", defaultValue = "5")
+                                   int failureThreshold,
+                           @ConfigProperty(name = "oci.vault.circuit-breaker.delay", defaultValue = "PT30S")
+                                   Duration openDelay,
+                           @ConfigProperty(name = "oci.vault.bulkhead.max-concurrent", defaultValue = "32")
+                                   int maxConcurrent) {
+        this(maxRetries, delay, maxDelay, failureThreshold, openDelay, maxConcurrent, System::nanoTime);
+    }
+
+    VaultCallPolicy(int maxRetries,
+                    Duration delay,
+                    Duration maxDelay,
+                    int failureThreshold,
+                    Duration openDelay,
+                    int maxConcurrent,
+                    LongSupplier clock) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.delayNanos = delay.toNanos();
+        this.maxDelayNanos = Math.max(delayNanos, maxDelay.toNanos());
+        this.failureThreshold = Math.max(0, failureThreshold);
+        this.openNanos = openDelay.toNanos();
+        this.bulkhead = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+        this.clock = clock;
+    }
+
+    /**
+     * Create a policy that calls the vault once, without circuit breaker and bulkhead.
+     *
+     * @return disabled vault call policy
+     */
+    static VaultCallPolicy disabled() {
+        return new VaultCallPolicy(0, Duration.ZERO, Duration.ZERO, 0, Duration.ZERO, 0, System::nanoTime);
+    }
+
+    /**
+     * Call the vault, applying the circuit breaker of the vault, the bulkhead and retries.
+     *
+     * @param vaultId OCID of the called vault
+     * @param idempotent whether the call may be repeated after a server error
+     * @param call the call to the vault
+     * @param retryListener notified with the number of the retry before each retry, without holding a bulkhead permit
+     * @param <T> type of the result
+     * @return result of the call
+     * @throws VaultUnavailableException if the vault could not be called or kept failing
+     */
+    public <T> T call(String vaultId, boolean idempotent, Supplier<T> call, IntConsumer retryListener) {
+        CircuitBreaker breaker = failureThreshold > 0
+                ? breakers.computeIfAbsent(vaultId, id -> new CircuitBreaker())
+                : null;
+        long delay = delayNanos;
+        for (int retry = 0; ; retry++) {
+            if (retry > 0) {
+                retryListener.accept(retry);
+                delay = nextDelay(delay);
+                sleep(delay);
+            }
+            if (breaker != null && !breaker.tryAcquire(clock.getAsLong())) {
+                throw new VaultUnavailableException("Circuit breaker of vault " + vaultId + " is open",
+                                                    breaker.retryAfter(clock.getAsLong()),
+                                                    null);
+            }
+            if (bulkhead != null && !bulkhead.tryAcquire()) {
+                if (breaker != null) {
+                    breaker.release();
+                }
+                throw new VaultUnavailableException("Too many concurrent calls to vault " + vaultId, null, null);
+            }
+            try {
+                T result = call.get();
+                if (breaker != null) {
+                    breaker.onSuccess();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (!isDegraded(e)) {
+                    if (breaker != null && e instanceof BmcException) {
+                        // the vault processed the call, so it is not degraded
+                        breaker.onSuccess();
+                    } else if (breaker != null) {
+                        // the call failed before or after reaching the vault
+                        breaker.release();
+                    }
+                    throw e;
+                }
+                if (breaker != null) {
+                    breaker.onFailure(clock.getAsLong());
+                }
+                if (retry >= maxRetries || !isRetryable(e, idempotent)) {
+                    throw new VaultUnavailableException("Vault " + vaultId + " failed after " + retry + " retries",
+                                                        null,
+                                                        e);
+                }
+                LOGGER.fine(() -> "Retrying vault call that failed with " + e.getMessage());
+            } finally {
+                if (bulkhead != null) {
+                    bulkhead.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the circuit breaker of a vault is currently open.
+     *
+     * @param vaultId OCID of the vault
+     * @return {@code true} if calls to the vault are rejected
+     */
+    public boolean isOpen(String vaultId) {
+        CircuitBreaker breaker = breakers.get(vaultId);
+        return breaker != null && breaker.isOpen(clock.getAsLong());
+    }
+
+    /**
+     * Whether a vault call failed because the vault is throttling, failing or not reachable.
+     *
+     * @param e failure of the call
+     * @return {@code true} if the failure counts towards the circuit breaker
+     */
+    static boolean isDegraded(Throwable e) {
+        if (!(e instanceof BmcException)) {
+            return false;
+        }
+        int status = ((BmcException) e).getStatusCode();
+        return status == 429 || status >= 500 || status <= 0;
+    }
+
+    /**
+     * Whether a failed vault call may succeed when repeated.
+     *
+     * @param e failure of the call
+     * @param idempotent whether the call may be repeated after a server error
+     * @return {@code true} if the call should be retried
+     */
+    static boolean isRetryable(Throwable e, boolean idempotent) {
+        if (!isDegraded(e)) {
+            return false;
+        }
+        // throttled requests are rejected before they are processed, other failures may have been applied
+        return idempotent || ((BmcException) e).getStatusCode() == 429;
+    }
+
+    long nextDelay(long previous) {
+        long upper = Math.max(delayNanos, Math.min(maxDelayNanos, previous * 3));
+        return upper > delayNanos ? ThreadLocalRandom.current().nextLong(delayNanos, upper + 1) : delayNanos;
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VaultUnavailableException("Interrupted while waiting to retry a vault call", null, e);
+        }
+    }
+
+    /**
+     * Circuit breaker of a single vault. Closed while calls succeed, open for a while after too many consecutive
+     * failures, then half-open until a single trial call either closes or opens it again.
+     */
+    private final class CircuitBreaker {
+        private int failures;
+        private boolean open;
+        private long openUntil;
+        private boolean trialInProgress;
+
+        synchronized boolean tryAcquire(long now) {
+            if (!open) {
+                return true;
+            }
+            if (now < openUntil || trialInProgress) {
+                return false;
+            }
+            trialInProgress = true;
+            return true;
+        }
+
+        synchronized void release() {
+            trialInProgress = false;
+        }
+
+        synchronized void onSuccess() {
+            failures = 0;
+            open = false;
+            trialInProgress = false;
+        }
+
+        synchronized void onFailure(long now) {
+            failures++;
+            if (trialInProgress || failures >= failureThreshold) {
+                if (!open) {
+                    LOGGER.warning("Opening circuit breaker after " + failures + " consecutive vault failures");
+                }
+                open = true;
+                openUntil = now + openNanos;
+                trialInProgress = false;
+                failures = 0;
+            }
+        }
+
+        synchronized boolean isOpen(long now) {
+            return open && (now < openUntil || trialInProgress);
+        }
+
+        synchronized Duration retryAfter(long now) {
+            return Duration.ofNanos(Math.max(0, openUntil - now));
+        }
+    }
+}
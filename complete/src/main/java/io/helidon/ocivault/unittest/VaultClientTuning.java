@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import com.oracle.bmc.ClientConfiguration;
+import com.oracle.bmc.common.ClientBuilderBase;
+import com.oracle.bmc.http.ApacheConfigurator;
+import com.oracle.bmc.http.ApacheConnectorProperties;
+import com.oracle.bmc.secrets.SecretsClient;
+import com.oracle.bmc.vault.VaultsClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Connection pool, keep-alive and timeouts of the OCI Vault clients, configured by {@code oci.vault.client.*}.
+ *
+ * Each client gets its own pool of up to {@code max-connections} connections, which are reused for at most
+ * {@code keep-alive} instead of negotiating TLS for every call. When the application starts,
+ * {@code warmup-connections} connections to each vault secrets are read from are opened ahead of the first requests.
+ * The state of the pools is exposed by the {@code secrets.vault.connections} gauges.
+ */
+@ApplicationScoped
+public class VaultClientTuning {
+    private final int maxConnections;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+    private final Duration keepAlive;
+    private final int warmupConnections;
+    private final SecretsMetrics secretsMetrics;
+    private final Instance<SecretsProvider> secretsProvider;
+    private final Map<String, PoolingHttpClientConnectionManager> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Create the client tuning using the settings from configuration.
+     *
+     * @param maxConnections maximal number of open connections of each client
+     * @param connectTimeout timeout to open a connection
+     * @param readTimeout timeout to read a response
+     * @param keepAlive time an open connection is reused for
+     * @param warmupConnections number of connections to open at startup to each vault secrets are read from
+     * @param secretsMetrics metrics of the connection pools
+     * @param secretsProvider provider whose connections are opened at startup
+     */
+    @Inject
+    public VaultClientTuning(@ConfigProperty(name = "oci.vault.client.max-connections", defaultValue = "50") int maxConnections,
+                             @ConfigProperty(name = "oci.vault.client.connect-timeout", defaultValue = "PT10S") Duration connectTimeout,
+                             @ConfigProperty(name = "oci.vault.client.read-timeout", defaultValue = "PT60S") Duration readTimeout,
+                             @ConfigProperty(name = "oci.vault.client.keep-alive", defaultValue = "PT1M") Duration keepAlive,
+                             @ConfigProperty(name = "oci.vault.client.warmup-connections", defaultValue = "4") int warmupConnections,
+                             SecretsMetrics secretsMetrics,
+                             Instance<SecretsProvider> secretsProvider) {
+        this.maxConnections = Math.max(1, maxConnections);
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.keepAlive = keepAlive;
+        this.warmupConnections = warmupConnections;
+        this.secretsMetrics = secretsMetrics;
+        this.secretsProvider = secretsProvider;
+    }
+
+    void customizeSecrets(@Observes SecretsClient.Builder builder) {
+        customize(builder, "secrets");
+    }
+
+    void customizeVaults(@Observes VaultsClient.Builder builder) {
+        customize(builder, "vaults");
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (warmupConnections > 0) {
+            secretsProvider.get().warmUp(warmupConnections);
+        }
+    }
+
+    /**
+     * Configure a client builder with its own connection pool and the configured timeouts.
+     *
+     * @param builder client builder
+     * @param pool name of the connection pool in metrics
+     * @param <B> type of the builder
+     * @return the builder
+     */
+    <B extends ClientBuilderBase<B, ?>> B customize(B builder, String pool) {
+        PoolingHttpClientConnectionManager connections =
+                new PoolingHttpClientConnectionManager(keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+        connections.setMaxTotal(maxConnections);
+        // a client only talks to the endpoint of its service
+        connections.setDefaultMaxPerRoute(maxConnections);
+        if (pools.put(pool, connections) == null) {
+            secretsMetrics.registerConnectionPool(pool, () -> pools.get(pool).getTotalStats());
+        }
+        return builder.configuration(ClientConfiguration.builder()
+                                             .connectionTimeoutMillis((int) connectTimeout.toMillis())
+                                             .readTimeoutMillis((int) readTimeout.toMillis())
+                                             .build())
+                .clientConfigurator(new ApacheConfigurator(ApacheConnectorProperties.builder()
+                                                                   .connectionManager(connections)
+                                                                   .build()));
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Client-side rate limiter of the calls to OCI Vault, keeping the calls of this instance below the vault quotas.
+ *
+ * Reads and writes have separate token buckets per vault, refilled at {@code reads-per-second} and
+ * {@code writes-per-second} up to {@code read-burst} and {@code write-burst} tokens. Limits of a single vault can be
+ * overridden by prefixing the property names with its OCID, e.g.
+ * {@code oci.vault.rate-limit.<vault-ocid>.reads-per-second}. A rate of {@code 0} disables the limit.
+ *
+ * A call that finds its bucket empty waits for a token for up to {@code timeout}, and fails with
+ * {@link RateLimitExceededException} if the token would not be available in time. A timeout of {@code PT0S} fails
+ * such calls immediately.
+ */
+@ApplicationScoped
+public class VaultRateLimiter {
+    private static final String PREFIX = "oci.vault.rate-limit.";
+
+    /**
+     * Kind of access to the vault, each with its own budget.
+     */
+    public enum Access {
+        /**
+         * Retrieval of secret contents.
+         */
+        READ,
+        /**
+         * Creation or update of secrets.
+         */
+        WRITE
+    }
+
+    private final Function<String, Limits> vaultLimits;
+    private final long timeoutNanos;
+    private final LongSupplier clock;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new rate limiter using the settings from configuration.
+     *
+     * @param readsPerSecond default rate of reads per vault
+     * @param readBurst default number of reads that may be made at once
+     * @param writesPerSecond default rate of writes per vault
+     * @param writeBurst default number of writes that may be made at once
+     * @param timeout maximal time a call waits for a token, {@code PT0S} to fail immediately
+     * @param config configuration to read limits of individual vaults
+     */
+    @Inject
+    public VaultRateLimiter(@ConfigProperty(name = "oci.vault.rate-limit.reads-per-second", defaultValue = "0")
+                                    double readsPerSecond,
+                            @ConfigProperty(name = "oci.vault.rate-limit.read-burst", defaultValue = "1")
+                                    int readBurst,
+                            @ConfigProperty(name = "oci.vault.rate-limit.writes-per-second", defaultValue = "0")
+                                    double writesPerSecond,
+                            @ConfigProperty(name = "oci.vault.rate-limit.write-burst", defaultValue = "1")
+                                    int writeBurst,
+                            @ConfigProperty(name = "oci.vault.rate-limit.timeout", defaultValue = "PT1S")
+                                    Duration timeout,
+                            Config config) {
+        this(vaultId -> Limits.fromConfig(config,
+                                          PREFIX + vaultId + ".",
+                                          new Limits(readsPerSecond, readBurst, writesPerSecond, writeBurst)),
+             timeout,
+             System::nanoTime);
+    }
+
+    VaultRateLimiter(Function<String, Limits> vaultLimits, Duration timeout, LongSupplier clock) {
+        this.vaultLimits = vaultLimits;
+        this.timeoutNanos = Math.max(0, timeout.toNanos());
+        this.clock = clock;
+    }
+
+    /**
+     * Create a rate limiter that permits every call.
+     *
+     * @return disabled rate limiter
+     */
+    static VaultRateLimiter disabled() {
+        Limits unlimited = new Limits(0, 1, 0, 1);
+        return new VaultRateLimiter(vaultId -> unlimited, Duration.ZERO, System::nanoTime);
+    }
+
+    /**
+     * Wait until a call to the vault is permitted.
+     *
+     * @param vaultId OCID of the vault
+     * @param access kind of access
+     * @throws RateLimitExceededException if the call is not permitted within the timeout
+     */
+    public void acquire(String vaultId, Access access) {
+        TokenBucket bucket = buckets.computeIfAbsent(vaultId + "/" + access, key -> {
+            Limits limits = vaultLimits.apply(vaultId);
+            return access == Access.READ
+                    ? new TokenBucket(limits.readsPerSecond, limits.readBurst, clock.getAsLong())
+                    : new TokenBucket(limits.writesPerSecond, limits.writeBurst, clock.getAsLong());
+        });
+        if (bucket.isUnlimited()) {
+            return;
+        }
+        long wait = bucket.reserve(clock.getAsLong(), timeoutNanos);
+        if (wait < 0) {
+            throw new RateLimitExceededException("Rate limit of " + access.name().toLowerCase(Locale.ROOT) + "s from vault "
+                                                         + vaultId + " exceeded",
+                                                 Duration.ofNanos(-wait));
+        }
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RateLimitExceededException("Interrupted while waiting for the rate limit of vault "
+                                                             + vaultId, null);
+            }
+        }
+    }
+
+    /**
+     * Rate limits of a single vault.
+     */
+    static final class Limits {
+        private final double readsPerSecond;
+        private final int readBurst;
+        private final double writesPerSecond;
+        private final int writeBurst;
+
+        Limits(double readsPerSecond, int readBurst, double writesPerSecond, int writeBurst) {
+            this.readsPerSecond = readsPerSecond;
+            this.readBurst = Math.max(1, readBurst);
+            this.writesPerSecond = writesPerSecond;
+            this.writeBurst = Math.max(1, writeBurst);
+        }
+
+        private static Limits fromConfig(Config config, String prefix, Limits defaults) {
+            return new Limits(config.getOptionalValue(prefix + "reads-per-second", Double.class)
+                                      .orElse(defaults.readsPerSecond),
+                              config.getOptionalValue(prefix + "read-burst", Integer.class)
+                                      .orElse(defaults.readBurst),
+                              config.getOptionalValue(prefix + "writes-per-second", Double.class)
+                                      .orElse(defaults.writesPerSecond),
+                              config.getOptionalValue(prefix + "write-burst", Integer.class)
+                                      .orElse(defaults.writeBurst));
+        }
+    }
+
+    /**
+     * Token bucket that lets callers reserve a future token, so that waiting callers are served in order.
+     */
+    private static final class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt;
+
+        private TokenBucket(double tokensPerSecond, int capacity, long now) {
+            this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        private boolean isUnlimited() {
+            return tokensPerNano <= 0;
+        }
+
+        /**
+         * Reserve a token.
+         *
+         * @return time to wait for the reserved token, or the negated time until a token would be available if it
+         *         is longer than the maximal wait
+         */
+        private synchronized long reserve(long now, long maxWaitNanos) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            long wait = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+            if (wait > maxWaitNanos) {
+                return -wait;
+            }
+            tokens -= 1;
+            return wait;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.oracle.bmc.secrets.Secrets;
+
+/**
+ * A vault secrets are read from, either the configured vault or one of its replicas in another region, together with
+ * the latency of its recent calls. Calls that failed because the replica is degraded count as calls that took at
+ * least a second, so that a replica that keeps failing fast is not preferred.
+ */
+public final class VaultReplica {
+    private static final double LATENCY_WEIGHT = 0.2;
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final String region;
+    private final String vaultId;
+    private final Secrets secretsClient;
+    private final List<String> prefixes;
+    private final AtomicLong latencyNanos = new AtomicLong(-1);
+
+    VaultReplica(String name, String region, String vaultId, Secrets secretsClient, List<String> prefixes) {
+        this.name = name;
+        this.region = region;
+        this.vaultId = vaultId;
+        this.secretsClient = secretsClient;
+        this.prefixes = List.copyOf(prefixes);
+    }
+
+    /**
+     * Name of the replica in configuration.
+     *
+     * @return replica name
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Region of the replica.
+     *
+     * @return region id, {@code null} for the region of the injected client
+     */
+    public String region() {
+        return region;
+    }
+
+    /**
+     * OCID of the vault.
+     *
+     * @return vault OCID
+     */
+    public String vaultId() {
+        return vaultId;
+    }
+
+    /**
+     * Moving average of the latency of reads from this replica, including the penalty of failed reads.
+     *
+     * @return latency in nanoseconds, {@code -1} if nothing was read from this replica yet
+     */
+    public long latencyNanos() {
+        return latencyNanos.get();
+    }
+
+    /**
+     * Whether secrets with the given name are preferably read from this replica.
+     *
+     * @param secretName name of the secret
+     * @return {@code true} if the name starts with one of the configured prefixes of this replica
+     */
+    public boolean serves(String secretName) {
+        for (String prefix : prefixes) {
+            if (secretName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Secrets secretsClient() {
+        return secretsClient;
+    }
+
+    void recordFailure(long nanos) {
+        recordLatency(Math.max(nanos, FAILURE_PENALTY_NANOS));
+    }
+
+    void recordLatency(long nanos) {
+        latencyNanos.updateAndGet(average -> average < 0 ? nanos : average + (long) (LATENCY_WEIGHT * (nanos - average)));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import com.oracle.bmc.Region;
+import com.oracle.bmc.auth.AbstractAuthenticationDetailsProvider;
+import com.oracle.bmc.secrets.SecretsClient;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Replicas of the configured vault in other regions, that secrets are read from when they are closer or when the
+ * configured vault is unavailable. Secrets are always written to the configured vault.
+ *
+ * Replicas are listed in {@code oci.vault.replicas}, each with its {@code region} and vault {@code id}, and optional
+ * secret name {@code prefixes} that are preferably read from it, e.g. {@code oci.vault.replicas.phoenix.region}.
+ * Reads go to the replica with the lowest latency among the ones whose circuit breaker is closed, and fail over to
+ * the next one while a replica is unavailable. The latency of each replica is measured on every read, and if
+ * {@code oci.vault.replicas.probe-secret} is set, by reading that secret from every replica each
+ * {@code oci.vault.replicas.probe-interval}.
+ */
+@ApplicationScoped
+public class VaultReplicas {
+    private static final Logger LOGGER = Logger.getLogger(VaultReplicas.class.getName());
+
+    private final List<VaultReplica> replicas;
+    private final String probeSecret;
+    private final Duration probeInterval;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Create vault replicas from configuration.
+     *
+     * @param config configuration to read the replicas from
+     * @param authProvider authentication of the clients of the replicas
+     * @param vaultClientTuning connection pool and timeouts of the clients of the replicas
+     * @param probeInterval time between two latency probes of the replicas
+     */
+    @Inject
+    public VaultReplicas(Config config,
+                         Instance<AbstractAuthenticationDetailsProvider> authProvider,
+                         VaultClientTuning vaultClientTuning,
+                         @ConfigProperty(name = "oci.vault.replicas.probe-interval", defaultValue = "PT30S") Duration probeInterval) {
+        this(config.getOptionalValue("oci.vault.replicas", String[].class)
+                     .map(names -> Arrays.stream(names)
+                             .map(name -> replica(config, name, authProvider, vaultClientTuning))
+                             .collect(Collectors.toList()))
+                     .orElse(Collections.emptyList()),
+             config.getOptionalValue("oci.vault.replicas.probe-secret", String.class).orElse(null),
+             probeInterval);
+    }
+
+    VaultReplicas(List<VaultReplica> replicas, String probeSecret, Duration probeInterval) {
+        this.replicas = List.copyOf(replicas);
+        this.probeSecret = probeSecret;
+        this.probeInterval = probeInterval;
+    }
+
+    /**
+     * No replicas, all secrets are read from the configured vault.
+     *
+     * @return vault replicas
+     */
+    static VaultReplicas disabled() {
+        return new VaultReplicas(Collections.emptyList(), null, Duration.ZERO);
+    }
+
+    /**
+     * Configured replicas, not including the configured vault.
+     *
+     * @return vault replicas
+     */
+    public List<VaultReplica> replicas() {
+        return replicas;
+    }
+
+    /**
+     * Order in which to try the vaults to read a secret: vaults whose circuit breaker is closed first, among them
+     * the ones serving the prefix of the secret name, then by latency. Vaults that were not read from yet come first,
+     * so that their latency gets measured.
+     *
+     * @param vaults the configured vault and its replicas
+     * @param secretName name of the secret
+     * @param isOpen whether the circuit breaker of a vault OCID is open
+     * @return vaults in the order to try them
+     */
+    static List<VaultReplica> route(List<VaultReplica> vaults, String secretName, Predicate<String> isOpen) {
+        if (vaults.size() == 1) {
+            return vaults;
+        }
+        return vaults.stream()
+                .sorted(Comparator.comparing((VaultReplica vault) -> isOpen.test(vault.vaultId()))
+                                .thenComparing(vault -> !vault.serves(secretName))
+                                .thenComparingLong(VaultReplica::latencyNanos))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Start probing the latency of the vaults, if a probe secret is configured.
+     *
+     * @param vaults the configured vault and its replicas
+     * @param probe reads the given secret from a vault
+     */
+    synchronized void start(List<VaultReplica> vaults, BiConsumer<VaultReplica, String> probe) {
+        if (probeSecret == null || vaults.size() < 2 || probeInterval.isZero() || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "secrets-replica-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = probeInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> vaults.forEach(vault -> {
+            try {
+                probe.accept(vault, probeSecret);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Latency probe of vault replica " + vault.name() + " failed", e);
+            }
+        }), 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop probing the latency of the vaults.
+     */
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        stop();
+        for (VaultReplica replica : replicas) {
+            try {
+                replica.secretsClient().close();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to close the client of vault replica " + replica.name(), e);
+            }
+        }
+    }
+
+    private static VaultReplica replica(Config config,
+                                        String name,
+                                        Instance<AbstractAuthenticationDetailsProvider> authProvider,
+                                        VaultClientTuning vaultClientTuning) {
+        String prefix = "oci.vault.replicas." + name + ".";
+        String region = config.getValue(prefix + "region", String.class);
+        SecretsClient secretsClient = vaultClientTuning.customize(SecretsClient.builder(), "secrets-" + name)
+                .region(Region.fromRegionCodeOrId(region))
+                .build(authProvider.get());
+        return new VaultReplica(name,
+                                region,
+                                config.getValue(prefix + "id", String.class),
+                                secretsClient,
+                                config.getOptionalValue(prefix + "prefixes", String[].class)
+                                        .map(Arrays::asList)
+                                        .orElse(Collections.emptyList()));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Thrown when OCI Vault cannot be called, because its circuit breaker is open, too many calls are in progress or
+ * it kept failing until all retries were used up.
+ */
+public class VaultUnavailableException extends RuntimeException {
+    private final Duration retryAfter;
+
+    /**
+     * Create a new exception.
+     *
+     * @param message description of the failure
+     * @param retryAfter time after which the vault may be called again, {@code null} if unknown
+     * @param cause last failure of the vault, {@code null} if the vault was not called
+     */
+    public VaultUnavailableException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Time after which the vault may be called again.
+     *
+     * @return retry delay, or empty if unknown
+     */
+    public Optional<Duration> retryAfter() {
+        return Optional.ofNullable(retryAfter);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import io.helidon.microprofile.tests.junit5.AddBean;
+import io.helidon.microprofile.tests.junit5.HelidonTest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+@HelidonTest
+@AddBean(CdiBeanFakeTest.FakeVaultsBean.class)
+@AddBean(CdiBeanFakeTest.FakeSecretsBean.class)
+class ConditionalGetCdiTest {
+    @Inject
+    private WebTarget webTarget;
+
+    @Test
+    void testConditionalGetSecret() {
+        String entityTag;
+        try (Response r = webTarget.path("secret/username").request().get()) {
+            Assertions.assertEquals(200, r.getStatus());
+            Assertions.assertTrue(r.getHeaderString(HttpHeaders.CACHE_CONTROL).contains("private"));
+            entityTag = r.getHeaderString(HttpHeaders.ETAG);
+        }
+        Assertions.assertNotNull(entityTag);
+        try (Response r = webTarget.path("secret/username").request().header(HttpHeaders.IF_NONE_MATCH, entityTag).get()) {
+            Assertions.assertEquals(304, r.getStatus());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ConditionalGetTest {
+    @Test
+    void testConditionalGetSecret() {
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(MockVaultClients.secretsClient()).build();
+        SecretsResource secretsResource =
+                new SecretsResource(secretsProvider, Duration.ofSeconds(10), Duration.ofMinutes(1));
+
+        Response response = MockVaultClients.join(secretsResource.getSecretAsync("password", null, null, null));
+        EntityTag entityTag = response.getEntityTag();
+        Assertions.assertNotNull(entityTag);
+        CacheControl cacheControl = (CacheControl) response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL);
+        Assertions.assertTrue(cacheControl.isPrivate());
+        Assertions.assertEquals(60, cacheControl.getMaxAge());
+        Assertions.assertEquals(entityTag,
+                                MockVaultClients.join(secretsResource.getSecretAsync("password", null, null, null))
+                                        .getEntityTag(),
+                                "Expecting the entity tag of an unchanged secret to be stable");
+
+        String ifNoneMatch = "\"other\", \"" + entityTag.getValue() + "\"";
+        Response notModified = MockVaultClients.join(secretsResource.getSecretAsync("password", null, null, ifNoneMatch));
+        Assertions.assertEquals(304, notModified.getStatus());
+        Assertions.assertNull(notModified.getEntity());
+        Assertions.assertEquals(200, MockVaultClients.join(
+                secretsResource.getSecretAsync("username", null, null, ifNoneMatch)).getStatus());
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.oracle.bmc.model.BmcException;
+import com.oracle.bmc.secrets.model.Base64SecretBundleContentDetails;
+import com.oracle.bmc.secrets.model.SecretBundle;
+import com.oracle.bmc.secrets.requests.GetSecretBundleByNameRequest;
+import com.oracle.bmc.secrets.responses.GetSecretBundleByNameResponse;
+import com.oracle.bmc.vault.requests.CreateSecretRequest;
+import com.oracle.bmc.vault.responses.CreateSecretResponse;
+import io.helidon.common.Base64Value;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * In-process fake of OCI Vault for load tests, holding a configurable number of generated secrets named
+ * {@code secret-0} to {@code secret-<n-1>}.
+ *
+ * Every call is delayed by a latency drawn from a {@code fixed}, {@code uniform} (between zero and twice the median)
+ * or {@code lognormal} (with the configured median and 99th percentile) distribution, and fails with the configured
+ * probabilities with {@code 500} or {@code 429}. Add {@link SecretsBean} and {@link VaultsBean} to a test to route the
+ * OCI clients to the fake vault.
+ */
+@ApplicationScoped
+public class FakeVault {
+    static final String SECRET_PREFIX = "secret-";
+    // standard normal quantile of the 99th percentile
+    private static final double Z_99 = 2.326;
+
+    private final Map<String, String> secrets = new HashMap<>();
+    private final String distribution;
+    private final long medianNanos;
+    private final double sigma;
+    private final double errorRate;
+    private final double throttleRate;
+    private final LongAdder calls = new LongAdder();
+
+    /**
+     * Create a new fake vault using the settings from configuration.
+     *
+     * @param secretCount number of generated secrets
+     * @param secretSize size of each generated secret in bytes
+     * @param distribution latency distribution, {@code fixed}, {@code uniform} or {@code lognormal}
+     * @param median median latency of a call
+     * @param p99 99th percentile latency of a call, used by the {@code lognormal} distribution
+     * @param errorRate probability of a call failing with {@code 500}
+     * @param throttleRate probability of a call failing with {@code 429}
+     */
+    @Inject
+    public FakeVault(@ConfigProperty(name = "fake.vault.secrets", defaultValue = "1000") int secretCount,
+                     @ConfigProperty(name = "fake.vault.secret-size", defaultValue = "64") int secretSize,
+                     @ConfigProperty(name = "fake.vault.latency.distribution", defaultValue = "fixed") String distribution,
+                     @ConfigProperty(name = "fake.vault.latency.median", defaultValue = "PT0S") Duration median,
+                     @ConfigProperty(name = "fake.vault.latency.p99", defaultValue = "PT0S") Duration p99,
+                     @ConfigProperty(name = "fake.vault.error-rate", defaultValue = "0") double errorRate,
+                     @ConfigProperty(name = "fake.vault.throttle-rate", defaultValue = "0") double throttleRate) {
+        if (!distribution.equals("fixed") && !distribution.equals("uniform") && !distribution.equals("lognormal")) {
+            throw new IllegalArgumentException("Unknown latency distribution: " + distribution);
+        }
+        Random random = new Random(secretCount);
+        for (int i = 0; i < secretCount; i++) {
+            byte[] value = new byte[secretSize];
+            random.nextBytes(value);
+            secrets.put(SECRET_PREFIX + i, Base64Value.create(value).toBase64());
+        }
+        this.distribution = distribution;
+        this.medianNanos = median.toNanos();
+        this.sigma = medianNanos > 0 && p99.toNanos() > medianNanos
+                ? Math.log((double) p99.toNanos() / medianNanos) / Z_99
+                : 0;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+    }
+
+    /**
+     * Number of calls made to the fake vault.
+     *
+     * @return call count
+     */
+    long calls() {
+        return calls.sum();
+    }
+
+    /**
+     * Number of secrets held by the fake vault.
+     *
+     * @return secret count
+     */
+    int size() {
+        return secrets.size();
+    }
+
+    /**
+     * Read the Base64 content of a secret.
+     *
+     * @param secretName name of the secret
+     * @return content of the secret
+     */
+    String read(String secretName) {
+        call();
+        String content = secrets.get(secretName);
+        if (content == null) {
+            throw new BmcException(404, "NotAuthorizedOrNotFound", "Unknown secret " + secretName, "fake");
+        }
+        return content;
+    }
+
+    /**
+     * Simulate a call to the vault, waiting for its latency and failing it with the configured probabilities.
+     */
+    void call() {
+        calls.increment();
+        long latency = latencyNanos();
+        if (latency > 0) {
+            LockSupport.parkNanos(latency);
+        }
+        double outcome = ThreadLocalRandom.current().nextDouble();
+        if (outcome < throttleRate) {
+            throw new BmcException(429, "TooManyRequests", "Fake vault throttled the call", "fake");
+        }
+        if (outcome < throttleRate + errorRate) {
+            throw new BmcException(500, "InternalServerError", "Fake vault failed the call", "fake");
+        }
+    }
+
+    private long latencyNanos() {
+        if (medianNanos <= 0) {
+            return 0;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (distribution) {
+        case "uniform":
+            return random.nextLong(2 * medianNanos + 1);
+        case "lognormal":
+            return (long) (medianNanos * Math.exp(sigma * random.nextGaussian()));
+        default:
+            return medianNanos;
+        }
+    }
+
+    /**
+     * Secrets client reading from the fake vault.
+     */
+    static class SecretsBean extends CdiBeanFakeTest.FakeSecretsBean {
+        private final FakeVault vault;
+
+        @Inject
+        SecretsBean(FakeVault vault) {
+            this.vault = vault;
+        }
+
+        @Override
+        public GetSecretBundleByNameResponse getSecretBundleByName(GetSecretBundleByNameRequest request) {
+            return GetSecretBundleByNameResponse.builder()
+                    .__httpStatusCode__(200)
+                    .secretBundle(SecretBundle.builder()
+                                          .versionNumber(1L)
+                                          .secretBundleContent(Base64SecretBundleContentDetails.builder()
+                                                                       .content(vault.read(request.getSecretName()))
+                                                                       .build())
+                                          .build())
+                    .build();
+        }
+    }
+
+    /**
+     * Vaults client writing to the fake vault. Created secrets are not stored.
+     */
+    static class VaultsBean extends CdiBeanFakeTest.FakeVaultsBean {
+        private final FakeVault vault;
+
+        @Inject
+        VaultsBean(FakeVault vault) {
+            this.vault = vault;
+        }
+
+        @Override
+        public CreateSecretResponse createSecret(CreateSecretRequest request) {
+            vault.call();
+            return super.createSecret(request);
+        }
+    }
+}
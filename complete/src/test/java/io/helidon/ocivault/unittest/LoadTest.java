@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.helidon.microprofile.tests.junit5.AddBean;
+import io.helidon.microprofile.tests.junit5.HelidonTest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.inject.Inject;
+import javax.ws.rs.client.WebTarget;
+
+/**
+ * Load test of {@code GET /secret/{name}} over HTTP against the in-process {@link FakeVault}. Only runs when
+ * {@code load.duration} is set, e.g.
+ * <pre>
+ * mvn test -Dtest=LoadTest -Dload.duration=PT30S -Dload.concurrency=64 \
+ *     -Dfake.vault.latency.distribution=lognormal -Dfake.vault.latency.median=PT0.02S -Dfake.vault.latency.p99=PT0.2S \
+ *     -Doci.vault.rate-limit.reads-per-second=0 -Doci.vault.rate-limit.writes-per-second=0
+ * </pre>
+ *
+ * The client-side rate limits are disabled so that the vault calls are not answered with
+ * {@code 429 Too Many Requests} by the limits shipped in {@code microprofile-config.properties}.
+ *
+ * Each of {@code load.concurrency} clients requests randomly chosen secrets of the fake vault for
+ * {@code load.warmup} and then for {@code load.duration}. The throughput, latency percentiles and response statuses
+ * of the measured requests are printed at the end.
+ */
+@HelidonTest
+@AddBean(FakeVault.class)
+@AddBean(FakeVault.SecretsBean.class)
+@AddBean(FakeVault.VaultsBean.class)
+@EnabledIfSystemProperty(named = "load.duration", matches = ".+")
+class LoadTest {
+    @Inject
+    private WebTarget webTarget;
+
+    @Inject
+    private FakeVault fakeVault;
+
+    @Test
+    void testLoad() throws Exception {
+        Duration duration = Duration.parse(System.getProperty("load.duration"));
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+        int concurrency = Integer.getInteger("load.concurrency", 16);
+        URI base = webTarget.getUri().resolve("/secret/");
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(concurrency);
+        HttpClient client = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .build();
+
+        long vaultCalls;
+        List<Recorder> recorders;
+        try {
+            run(client, base, concurrency, warmup);
+            vaultCalls = fakeVault.calls();
+            recorders = run(client, base, concurrency, duration);
+            vaultCalls = fakeVault.calls() - vaultCalls;
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+
+        long[] latencies = recorders.stream()
+                .flatMapToLong(recorder -> Arrays.stream(recorder.latencies, 0, recorder.count))
+                .sorted()
+                .toArray();
+        Map<Integer, Integer> statuses = new TreeMap<>();
+        recorders.forEach(recorder -> recorder.statuses
+                .forEach((status, count) -> statuses.merge(status, count, Integer::sum)));
+        Assertions.assertTrue(latencies.length > 0, "Expecting requests to complete");
+
+        System.out.printf("Requests: %d in %s with %d clients, %.1f requests/s%n",
+                          latencies.length, duration, concurrency, latencies.length * 1e9 / duration.toNanos());
+        System.out.printf("Latency: p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms%n",
+                          percentile(latencies, 0.5),
+                          percentile(latencies, 0.99),
+                          percentile(latencies, 0.999),
+                          latencies[latencies.length - 1] / 1e6);
+        System.out.printf("Statuses: %s, vault calls: %d for %d secrets%n", statuses, vaultCalls, fakeVault.size());
+    }
+
+    private List<Recorder> run(HttpClient client, URI base, int concurrency, Duration duration) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            long end = System.nanoTime() + duration.toNanos();
+            List<Future<Recorder>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(executor.submit(() -> {
+                    Recorder recorder = new Recorder();
+                    while (System.nanoTime() < end) {
+                        String name = FakeVault.SECRET_PREFIX + ThreadLocalRandom.current().nextInt(fakeVault.size());
+                        HttpRequest request = HttpRequest.newBuilder(base.resolve(name)).GET().build();
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        recorder.record(System.nanoTime() - start, response.statusCode());
+                    }
+                    return recorder;
+                }));
+            }
+            List<Recorder> recorders = new ArrayList<>();
+            for (Future<Recorder> future : futures) {
+                recorders.add(future.get());
+            }
+            return recorders;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Latencies and response statuses of the requests of a single client.
+     */
+    private static final class Recorder {
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+        private long[] latencies = new long[1024];
+        private int count;
+
+        private void record(long latencyNanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            statuses.merge(status, 1, Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionStage;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.oracle.bmc.model.BmcException;
+import com.oracle.bmc.secrets.Secrets;
+import com.oracle.bmc.secrets.model.Base64SecretBundleContentDetails;
+import com.oracle.bmc.secrets.model.SecretBundle;
+import com.oracle.bmc.secrets.requests.GetSecretBundleByNameRequest;
+import com.oracle.bmc.secrets.responses.GetSecretBundleByNameResponse;
+import com.oracle.bmc.vault.Vaults;
+import com.oracle.bmc.vault.model.Secret;
+import com.oracle.bmc.vault.responses.CreateSecretResponse;
+import org.junit.jupiter.api.Assertions;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mocked OCI clients stubbed like the ones of {@link MockitoMockTest}, for the tests of single features. Every call
+ * returns new mocks, so that tests can verify their calls independently.
+ */
+final class MockVaultClients {
+    private MockVaultClients() {
+    }
+
+    /**
+     * Vaults client creating secrets with the id {@link FakeSecretsData#CREATE_SECRET_ID}.
+     *
+     * @return mocked client
+     */
+    static Vaults vaultsClient() {
+        Vaults vaultsClient = mock(Vaults.class);
+        when(vaultsClient.createSecret(any())).thenReturn(
+                CreateSecretResponse.builder()
+                        .__httpStatusCode__(200)
+                        .secret(Secret.builder().id(FakeSecretsData.CREATE_SECRET_ID).build())
+                        .build());
+        return vaultsClient;
+    }
+
+    /**
+     * Secrets client returning the values of {@link FakeSecretsData}, failing for other secret names.
+     *
+     * @return mocked client
+     */
+    static Secrets secretsClient() {
+        Secrets secretsClient = mock(Secrets.class);
+        doAnswer(invocationOnMock -> {
+            GetSecretBundleByNameRequest request = invocationOnMock.getArgument(0);
+            String base64Data = FakeSecretsData.secretsData.get(request.getSecretName());
+            if (base64Data == null) {
+                throw new RuntimeException("Unknown secret key");
+            }
+            return GetSecretBundleByNameResponse.builder()
+                    .__httpStatusCode__(200)
+                    .secretBundle(
+                            SecretBundle.builder().secretBundleContent(
+                                    Base64SecretBundleContentDetails.builder().content(base64Data).build()).build())
+                    .build();
+        }).when(secretsClient).getSecretBundleByName(any());
+        return secretsClient;
+    }
+
+    /**
+     * Secrets client of a vault that is unavailable.
+     *
+     * @return mocked client
+     */
+    static Secrets unavailableSecretsClient() {
+        Secrets secretsClient = mock(Secrets.class);
+        when(secretsClient.getSecretBundleByName(any()))
+                .thenThrow(new BmcException(503, "ServiceUnavailable", "Vault unavailable", "requestId"));
+        return secretsClient;
+    }
+
+    /**
+     * Builder of a provider using the given secrets client and a new vaults client.
+     *
+     * @param secretsClient client to read secrets with
+     * @return provider builder
+     */
+    static SecretsProvider.Builder providerBuilder(Secrets secretsClient) {
+        return providerBuilder(secretsClient, vaultsClient());
+    }
+
+    /**
+     * Builder of a provider using the given clients.
+     *
+     * @param secretsClient client to read secrets with
+     * @param vaultsClient client to write secrets with
+     * @return provider builder
+     */
+    static SecretsProvider.Builder providerBuilder(Secrets secretsClient, Vaults vaultsClient) {
+        return SecretsProvider.builder(secretsClient, vaultsClient, "vaultId", "vaultCompartmentId", "vaultKeyId");
+    }
+
+    /**
+     * Read the value streamed by a response of {@link SecretsResource}.
+     *
+     * @param stage response stage
+     * @return secret value
+     */
+    static String readSecret(CompletionStage<Response> stage) {
+        Response response = join(stage);
+        Assertions.assertEquals(MediaType.TEXT_PLAIN_TYPE.withCharset("UTF-8"), response.getMediaType());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            ((StreamingOutput) response.getEntity()).write(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    static <T> T join(CompletionStage<T> stage) {
+        return stage.toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import io.helidon.microprofile.tests.junit5.AddBean;
+import io.helidon.microprofile.tests.junit5.HelidonTest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.json.JsonArray;
+import javax.json.JsonValue;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+
+@HelidonTest
+@AddBean(CdiBeanFakeTest.FakeVaultsBean.class)
+@AddBean(CdiBeanFakeTest.FakeSecretsBean.class)
+class SecretAccessStatsCdiTest {
+    @Inject
+    private WebTarget webTarget;
+
+    @Test
+    void testAccessStats() {
+        webTarget.path("secret/password").request().get(String.class);
+        JsonArray response = webTarget
+                .path("secret/_stats")
+                .queryParam("limit", 5)
+                .request(MediaType.APPLICATION_JSON)
+                .get(JsonArray.class);
+        Assertions.assertTrue(response.stream()
+                                      .map(JsonValue::asJsonObject)
+                                      .anyMatch(secret -> secret.getString("name").equals("password")
+                                              && secret.getInt("requests") > 0));
+    }
+}
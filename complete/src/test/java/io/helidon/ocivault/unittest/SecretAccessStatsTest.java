@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.ws.rs.BadRequestException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SecretAccessStatsTest {
+    @Test
+    void testTopSecrets() {
+        SecretAccessStats stats = new SecretAccessStats(10, () -> 1000L);
+        stats.recordRequest("username");
+        stats.recordRequest("password");
+        stats.recordRequest("password");
+        stats.recordFetch("password", Duration.ofMillis(10).toNanos());
+        stats.recordFetch("password", Duration.ofMillis(30).toNanos());
+        stats.recordFetch("token", Duration.ofMillis(5).toNanos());
+
+        List<SecretAccessStats.SecretAccess> top = stats.top(2);
+        Assertions.assertEquals(List.of("password", "username"), names(top));
+        SecretAccessStats.SecretAccess password = top.get(0);
+        Assertions.assertEquals(2, password.requests());
+        Assertions.assertEquals(2, password.fetches());
+        Assertions.assertEquals(Duration.ofMillis(20), password.averageFetchLatency());
+        Assertions.assertEquals(Instant.ofEpochMilli(1000), password.lastAccess());
+        Assertions.assertNull(stats.top(3).get(2).lastAccess(), "Expecting a secret that was only fetched not to be accessed");
+    }
+
+    @Test
+    void testBoundedNames() {
+        SecretAccessStats stats = new SecretAccessStats(10, System::currentTimeMillis);
+        for (int i = 0; i < 5; i++) {
+            stats.recordRequest("username");
+        }
+        for (int i = 0; i < 100; i++) {
+            stats.recordRequest("unknown-" + i);
+        }
+        Assertions.assertTrue(stats.size() <= 10, "Expecting at most 10 names, got " + stats.size());
+        Assertions.assertEquals("username", stats.top(1).get(0).secretName(), "Expecting the hot secret to be kept");
+
+        SecretAccessStats disabled = new SecretAccessStats(0, System::currentTimeMillis);
+        disabled.recordRequest("username");
+        Assertions.assertEquals(0, disabled.size());
+    }
+
+    @Test
+    void testAccessStats() {
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(MockVaultClients.secretsClient()).build();
+        SecretsResource secretsResource = new SecretsResource(secretsProvider);
+        MockVaultClients.readSecret(secretsResource.getSecretAsync("username"));
+        MockVaultClients.readSecret(secretsResource.getSecretAsync("username"));
+        MockVaultClients.readSecret(secretsResource.getSecretAsync("password"));
+
+        JsonArray stats = secretsResource.getAccessStats(1);
+        Assertions.assertEquals(1, stats.size());
+        JsonObject username = stats.getJsonObject(0);
+        Assertions.assertEquals("username", username.getString("name"));
+        Assertions.assertEquals(2, username.getInt("requests"));
+        Assertions.assertEquals(1, username.getInt("fetches"));
+        Assertions.assertTrue(username.containsKey("lastAccess"));
+        Assertions.assertThrows(BadRequestException.class, () -> secretsResource.getAccessStats(0));
+    }
+
+    @Test
+    void testPrefetchAndWatchNotCounted() {
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(MockVaultClients.secretsClient()).build();
+        new SecretsPrefetcher(secretsProvider, List.of("username", "password"), Duration.ofMinutes(1)).prefetch().join();
+        MockVaultClients.join(secretsProvider.currentVersionAsync("username")).wipe();
+        secretsProvider.getSecret("username");
+
+        List<SecretAccessStats.SecretAccess> top = secretsProvider.accessStats().top(2);
+        Assertions.assertEquals(List.of("username", "password"), names(top));
+        Assertions.assertEquals(1, top.get(0).requests(), "Expecting only the request of the application to count");
+        Assertions.assertEquals(1, top.get(0).fetches());
+        Assertions.assertEquals(0, top.get(1).requests(), "Expecting a prefetched secret not to count as requested");
+        Assertions.assertEquals(1, top.get(1).fetches());
+    }
+
+    private static List<String> names(List<SecretAccessStats.SecretAccess> top) {
+        return top.stream().map(SecretAccessStats.SecretAccess::secretName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SecretBytesTest {
+    @Test
+    void testDecodeBase64() {
+        Random random = new Random(42);
+        for (int length = 2048; length >= 0; length -= length > 64 ? 997 : 1) {
+            byte[] value = new byte[length];
+            random.nextBytes(value);
+            String encoded = Base64.getEncoder().encodeToString(value);
+            Assertions.assertArrayEquals(value, SecretBytes.decodeBase64(encoded));
+            Assertions.assertArrayEquals(value, SecretBytes.decodeBase64(encoded.replace("=", "")));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SecretBytes.decodeBase64("Sm9l!"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SecretBytes.decodeBase64("Sm9l\u20ac"));
+    }
+
+    @Test
+    void testToChars() {
+        String value = "Mighty! é€🔑";
+        char[] chars = SecretBytes.toChars(value.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertArrayEquals(value.toCharArray(), chars);
+
+        SecretBytes.wipe(chars);
+        Assertions.assertArrayEquals(new char[value.length()], chars);
+    }
+
+    @Test
+    void testGetSecretBytesAndChars() {
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(MockVaultClients.secretsClient()).build();
+        String expected = FakeSecretsData.getDecodedValue("password");
+
+        byte[] bytes = secretsProvider.getSecretBytes("password");
+        Assertions.assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes);
+        Arrays.fill(bytes, (byte) 0);
+        Assertions.assertArrayEquals(expected.toCharArray(), secretsProvider.getSecretChars("password"),
+                                     "Expecting the cached value not to be affected by wiping a returned array");
+        Assertions.assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8),
+                                     MockVaultClients.join(secretsProvider.getSecretBytesAsync("password")));
+    }
+}
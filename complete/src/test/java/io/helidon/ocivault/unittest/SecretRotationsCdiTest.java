@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.io.StringReader;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.helidon.microprofile.tests.junit5.AddBean;
+import io.helidon.microprofile.tests.junit5.HelidonTest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.sse.InboundSseEvent;
+import javax.ws.rs.sse.SseEventSource;
+
+@HelidonTest
+@AddBean(CdiBeanFakeTest.FakeVaultsBean.class)
+@AddBean(CdiBeanFakeTest.FakeSecretsBean.class)
+class SecretRotationsCdiTest {
+    @Inject
+    private WebTarget webTarget;
+
+    @Inject
+    private SecretsProvider secretsProvider;
+
+    @Test
+    void testWatchSecrets() throws InterruptedException {
+        BlockingQueue<InboundSseEvent> events = new LinkedBlockingQueue<>();
+        try (SseEventSource source = SseEventSource.target(webTarget.path("secret/_events").queryParam("name", "username"))
+                .build()) {
+            source.register(events::add);
+            source.open();
+            InboundSseEvent event = events.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(event, "Expecting an event with the current version of the secret");
+            Assertions.assertEquals("current", event.getName());
+            Assertions.assertEquals("username", Json.createReader(new StringReader(event.readData()))
+                    .readObject()
+                    .getString("name"));
+        }
+    }
+
+    @Test
+    void testWatchSecretsClientGone() throws InterruptedException {
+        BlockingQueue<InboundSseEvent> events = new LinkedBlockingQueue<>();
+        try (SseEventSource source = SseEventSource.target(webTarget.path("secret/_events").queryParam("name", "password"))
+                .build()) {
+            source.register(events::add);
+            source.open();
+            Assertions.assertNotNull(events.poll(5, TimeUnit.SECONDS), "Expecting the secret to be watched");
+            Assertions.assertTrue(secretsProvider.rotations().watchedSecrets().contains("password"));
+        }
+        // the heartbeat sent by every background refresh detects the disconnected client
+        for (int i = 0; i < 50 && secretsProvider.rotations().watchedSecrets().contains("password"); i++) {
+            secretsProvider.rotations().heartbeat();
+            Thread.sleep(100);
+        }
+        Assertions.assertFalse(secretsProvider.rotations().watchedSecrets().contains("password"),
+                               "Expecting the secret of a disconnected client to be no longer watched");
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.oracle.bmc.secrets.Secrets;
+import com.oracle.bmc.secrets.model.Base64SecretBundleContentDetails;
+import com.oracle.bmc.secrets.model.SecretBundle;
+import com.oracle.bmc.secrets.responses.GetSecretBundleByNameResponse;
+import io.helidon.common.Base64Value;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SecretRotationsTest {
+    @Test
+    void testNotifySubscribers() {
+        SecretRotations rotations = SecretRotations.create();
+        List<String> notified = new ArrayList<>();
+        SecretRotations.Subscription subscription = rotations.subscribe(List.of("username", "password"),
+                                                                        (name, version) -> notified.add(name + "@" + version));
+        Assertions.assertEquals(List.of("username", "password"), rotations.watchedSecrets());
+
+        rotations.loaded("username", 1L);
+        rotations.loaded("username", 1L);
+        rotations.loaded("username", null);
+        Assertions.assertTrue(notified.isEmpty(), "Expecting no notification until the version changes");
+
+        rotations.loaded("username", 2L);
+        rotations.loaded("token", 1L);
+        rotations.loaded("token", 2L);
+        Assertions.assertEquals(List.of("username@2"), notified);
+        rotations.loaded("username", 1L);
+        rotations.loaded("username", 2L);
+        Assertions.assertEquals(List.of("username@2"), notified, "Expecting an older version not to be a rotation");
+
+        subscription.close();
+        rotations.loaded("username", 3L);
+        Assertions.assertEquals(List.of("username@2"), notified);
+        Assertions.assertEquals(0, rotations.subscriptions());
+        Assertions.assertTrue(rotations.watchedSecrets().isEmpty());
+    }
+
+    @Test
+    void testHeartbeatClosesSubscription() {
+        SecretRotations rotations = SecretRotations.create();
+        List<String> connected = new ArrayList<>(List.of("client"));
+        rotations.subscribe(Set.of("username"), (name, version) -> { }, subscription -> {
+            if (connected.isEmpty()) {
+                subscription.close();
+            }
+        });
+        rotations.subscribe(Set.of("password"), (name, version) -> { }, subscription -> {
+            throw new IllegalStateException("Client went away");
+        });
+
+        rotations.heartbeat();
+        Assertions.assertEquals(List.of("username"), rotations.watchedSecrets());
+
+        connected.clear();
+        rotations.heartbeat();
+        Assertions.assertEquals(0, rotations.subscriptions());
+        Assertions.assertTrue(rotations.watchedSecrets().isEmpty());
+    }
+
+    @Test
+    void testFailingListener() {
+        SecretRotations rotations = SecretRotations.create();
+        List<String> notified = new ArrayList<>();
+        rotations.subscribe(Set.of("username"), (name, version) -> {
+            throw new IllegalStateException("Client went away");
+        });
+        rotations.subscribe(Set.of("username"), (name, version) -> notified.add(name));
+
+        rotations.loaded("username", 1L);
+        rotations.loaded("username", 2L);
+        Assertions.assertEquals(List.of("username"), notified, "Expecting other subscribers to be notified");
+    }
+
+    @Test
+    void testRotationNotifications() {
+        AtomicLong currentVersion = new AtomicLong(1);
+        Secrets rotatingSecretsClient = mock(Secrets.class);
+        doAnswer(invocationOnMock -> GetSecretBundleByNameResponse.builder()
+                .__httpStatusCode__(200)
+                .secretBundle(SecretBundle.builder()
+                                      .versionNumber(currentVersion.get())
+                                      .secretBundleContent(Base64SecretBundleContentDetails.builder()
+                                                                   .content(Base64Value.create("Value").toBase64())
+                                                                   .build())
+                                      .build())
+                .build()).when(rotatingSecretsClient).getSecretBundleByName(any());
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(rotatingSecretsClient).build();
+        List<Long> rotations = new ArrayList<>();
+        secretsProvider.rotations().subscribe(List.of("username"), (name, version) -> rotations.add(version));
+
+        secretsProvider.getSecret("username");
+        currentVersion.set(2);
+        secretsProvider.getSecret("username");
+        Assertions.assertTrue(rotations.isEmpty(), "Expecting no vault call while the secret is cached");
+
+        secretsProvider.evictSecret("username");
+        secretsProvider.getSecret("username");
+        Assertions.assertEquals(List.of(2L), rotations);
+    }
+}
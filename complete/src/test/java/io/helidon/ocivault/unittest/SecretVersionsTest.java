@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.EntityTag;
+
+import com.oracle.bmc.secrets.Secrets;
+import com.oracle.bmc.secrets.model.Base64SecretBundleContentDetails;
+import com.oracle.bmc.secrets.model.SecretBundle;
+import com.oracle.bmc.secrets.requests.GetSecretBundleByNameRequest;
+import com.oracle.bmc.secrets.responses.GetSecretBundleByNameResponse;
+import io.helidon.common.Base64Value;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class SecretVersionsTest {
+    @Test
+    void testGetSecretVersions() {
+        Secrets versionedSecretsClient = mock(Secrets.class);
+        doAnswer(invocationOnMock -> {
+            GetSecretBundleByNameRequest request = invocationOnMock.getArgument(0);
+            long version = request.getVersionNumber() != null
+                    ? request.getVersionNumber()
+                    : request.getStage() == GetSecretBundleByNameRequest.Stage.Previous ? 1 : 2;
+            return GetSecretBundleByNameResponse.builder()
+                    .__httpStatusCode__(200)
+                    .secretBundle(SecretBundle.builder()
+                                          .versionNumber(version)
+                                          .secretBundleContent(Base64SecretBundleContentDetails.builder()
+                                                                       .content(Base64Value.create("Value" + version)
+                                                                                        .toBase64())
+                                                                       .build())
+                                          .build())
+                    .build();
+        }).when(versionedSecretsClient).getSecretBundleByName(any());
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(versionedSecretsClient).build();
+        SecretsResource secretsResource = new SecretsResource(secretsProvider);
+
+        Assertions.assertEquals("Value2", secretsProvider.getSecret("username"));
+        Assertions.assertEquals("Value1", secretsProvider.getSecret(SecretRef.version("username", 1)));
+        Assertions.assertEquals("Value1",
+                                MockVaultClients.readSecret(secretsResource.getSecretAsync("username", 1L, null, null)));
+        verify(versionedSecretsClient, times(2)).getSecretBundleByName(any());
+
+        Assertions.assertEquals("Value1", MockVaultClients.readSecret(
+                secretsResource.getSecretAsync("username", null, "previous", null)));
+        Assertions.assertEquals("Value1",
+                                secretsProvider.getSecret(SecretRef.stage("username", SecretRef.Stage.PREVIOUS)));
+        verify(versionedSecretsClient, times(4)).getSecretBundleByName(any());
+        Assertions.assertEquals(new EntityTag("v2"),
+                                MockVaultClients.join(secretsResource.getSecretAsync("username")).getEntityTag());
+        Assertions.assertEquals(304, MockVaultClients.join(
+                secretsResource.getSecretAsync("username", null, null, "\"v2\"")).getStatus());
+
+        Assertions.assertThrows(BadRequestException.class,
+                                () -> secretsResource.getSecretAsync("username", 1L, "previous", null));
+        Assertions.assertThrows(BadRequestException.class,
+                                () -> secretsResource.getSecretAsync("username", null, "unknown", null));
+    }
+}
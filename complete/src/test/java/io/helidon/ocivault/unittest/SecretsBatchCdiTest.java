@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import io.helidon.microprofile.tests.junit5.AddBean;
+import io.helidon.microprofile.tests.junit5.HelidonTest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+
+@HelidonTest
+@AddBean(CdiBeanFakeTest.FakeVaultsBean.class)
+@AddBean(CdiBeanFakeTest.FakeSecretsBean.class)
+class SecretsBatchCdiTest {
+    @Inject
+    private WebTarget webTarget;
+
+    @Test
+    void testGetSecrets() {
+        JsonObject response = webTarget
+                .path("secret/_batch")
+                .request()
+                .post(Entity.json(Json.createArrayBuilder().add("username").add("unknown").build()), JsonObject.class);
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("username"),
+                                response.getJsonObject("username").getString("value"));
+        Assertions.assertTrue(response.getJsonObject("unknown").containsKey("error"));
+    }
+
+    @Test
+    void testCreateSecrets() {
+        JsonObject response = webTarget
+                .path("secret/_batch")
+                .request()
+                .put(Entity.json(Json.createObjectBuilder().add("NewSecretKey", "NewSecretValue").build()),
+                     JsonObject.class);
+        Assertions.assertEquals("created", response.getJsonObject("NewSecretKey").getString("status"));
+        Assertions.assertEquals(FakeSecretsData.CREATE_SECRET_ID, response.getJsonObject("NewSecretKey").getString("id"));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.ws.rs.BadRequestException;
+
+import com.oracle.bmc.model.BmcException;
+import com.oracle.bmc.vault.Vaults;
+import com.oracle.bmc.vault.model.Secret;
+import com.oracle.bmc.vault.model.SecretSummary;
+import com.oracle.bmc.vault.requests.CreateSecretRequest;
+import com.oracle.bmc.vault.requests.ListSecretsRequest;
+import com.oracle.bmc.vault.responses.CreateSecretResponse;
+import com.oracle.bmc.vault.responses.ListSecretsResponse;
+import com.oracle.bmc.vault.responses.UpdateSecretResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SecretsBatchTest {
+    @Test
+    void testGetSecrets() {
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(MockVaultClients.secretsClient()).build();
+        Map<String, SecretResult> results =
+                secretsProvider.getSecrets(List.of("username", "password", "Unknown", "username"));
+        Assertions.assertEquals(List.of("username", "password", "Unknown"), List.copyOf(results.keySet()));
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("username"), results.get("username").value());
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("password"), results.get("password").value());
+        Assertions.assertFalse(results.get("Unknown").isSuccess());
+        Assertions.assertNotNull(results.get("Unknown").error());
+    }
+
+    @Test
+    void testCreateSecrets() {
+        Vaults vaultsClient = mock(Vaults.class);
+        doAnswer(invocationOnMock -> {
+            CreateSecretRequest request = invocationOnMock.getArgument(0);
+            String secretName = request.getCreateSecretDetails().getSecretName();
+            if (secretName.equals("username") || secretName.equals("Deleted")) {
+                throw new BmcException(409, "Conflict", "Secret already exists", "requestId");
+            }
+            if (secretName.equals("Invalid")) {
+                throw new BmcException(400, "InvalidParameter", "Invalid secret name", "requestId");
+            }
+            return CreateSecretResponse.builder()
+                    .__httpStatusCode__(200)
+                    .secret(Secret.builder().id(FakeSecretsData.CREATE_SECRET_ID).build())
+                    .build();
+        }).when(vaultsClient).createSecret(any());
+        doAnswer(invocationOnMock -> {
+            ListSecretsRequest request = invocationOnMock.getArgument(0);
+            // a secret that is pending deletion still holds its name
+            List<SecretSummary> items = new ArrayList<>();
+            items.add(SecretSummary.builder()
+                              .id("ocid1.vaultsecret.deleted")
+                              .lifecycleState(SecretSummary.LifecycleState.PendingDeletion)
+                              .build());
+            if (request.getName().equals("username")) {
+                items.add(SecretSummary.builder()
+                                  .id("ocid1.vaultsecret.username")
+                                  .lifecycleState(SecretSummary.LifecycleState.Active)
+                                  .build());
+            }
+            return ListSecretsResponse.builder().items(items).build();
+        }).when(vaultsClient).listSecrets(any());
+        when(vaultsClient.updateSecret(any())).thenReturn(
+                UpdateSecretResponse.builder()
+                        .secret(Secret.builder().id("ocid1.vaultsecret.username").build())
+                        .build());
+        SecretsProvider secretsProvider =
+                MockVaultClients.providerBuilder(MockVaultClients.secretsClient(), vaultsClient).build();
+        secretsProvider.getSecret("username");
+
+        Map<String, String> secrets = new LinkedHashMap<>();
+        secrets.put("NewSecret", "Value");
+        secrets.put("username", "Jane");
+        secrets.put("Invalid", "Value");
+        secrets.put("Deleted", "Value");
+        Map<String, SecretWriteResult> results = secretsProvider.createSecrets(secrets);
+        Assertions.assertEquals(List.of("NewSecret", "username", "Invalid", "Deleted"), List.copyOf(results.keySet()));
+        Assertions.assertEquals(SecretWriteResult.Status.CREATED, results.get("NewSecret").status());
+        Assertions.assertEquals(FakeSecretsData.CREATE_SECRET_ID, results.get("NewSecret").secretId());
+        Assertions.assertEquals(SecretWriteResult.Status.UPDATED, results.get("username").status());
+        Assertions.assertEquals("ocid1.vaultsecret.username", results.get("username").secretId());
+        Assertions.assertEquals(SecretWriteResult.Status.FAILED, results.get("Invalid").status());
+        Assertions.assertNotNull(results.get("Invalid").error());
+        Assertions.assertEquals(SecretWriteResult.Status.FAILED, results.get("Deleted").status(),
+                                "Expecting a secret without an active version not to be updated");
+        verify(vaultsClient, times(1)).updateSecret(any());
+        Assertions.assertTrue(secretsProvider.cache().get("username").isEmpty(),
+                              "Expecting the cached value of an updated secret to be evicted");
+    }
+
+    @Test
+    void testReservedNames() {
+        Vaults vaultsClient = MockVaultClients.vaultsClient();
+        SecretsResource secretsResource = new SecretsResource(
+                MockVaultClients.providerBuilder(MockVaultClients.secretsClient(), vaultsClient).build());
+
+        Assertions.assertThrows(BadRequestException.class, () -> secretsResource.createSecretAsync("_stats", "Value"));
+        Assertions.assertThrows(BadRequestException.class, () -> secretsResource.createSecrets(
+                Json.createObjectBuilder().add("NewSecret", "Value").add("_batch", "Value").build()));
+        verify(vaultsClient, never()).createSecret(any());
+    }
+}
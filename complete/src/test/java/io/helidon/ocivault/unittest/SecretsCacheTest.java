@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.oracle.bmc.secrets.Secrets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class SecretsCacheTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testHitAndExpiry() {
+        SecretsCache cache = new SecretsCache(10, Duration.ofSeconds(10), Duration.ofSeconds(2), clock::get);
+        cache.put("username", bytes("Joe"), 1L);
+        Assertions.assertEquals("Joe", cache.get("username").orElseThrow().value());
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        Assertions.assertTrue(cache.get("username").isEmpty(), "Expecting the entry to be expired");
+        Assertions.assertEquals(1L, cache.stats().get("hits"));
+        Assertions.assertEquals(1L, cache.stats().get("misses"));
+        Assertions.assertEquals(1L, cache.stats().get("evictions-expired"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() {
+        SecretsCache cache = new SecretsCache(2, Duration.ofSeconds(10), Duration.ZERO, clock::get);
+        cache.put("username", bytes("Joe"), 1L);
+        cache.put("password", bytes("Mighty!"), 1L);
+        cache.get("username");
+        cache.put("token", bytes("abc"), 1L);
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertTrue(cache.get("password").isEmpty(), "Expecting the least recently used entry to be evicted");
+        Assertions.assertTrue(cache.get("username").isPresent());
+        Assertions.assertEquals(1L, cache.stats().get("evictions-size"));
+    }
+
+    @Test
+    void testRefreshAheadClaimedOnce() {
+        SecretsCache cache = new SecretsCache(10, Duration.ofSeconds(10), Duration.ofSeconds(2), clock::get);
+        cache.put("username", bytes("Joe"), 1L);
+        SecretsCache.CachedSecret cached = cache.get("username").orElseThrow();
+        Assertions.assertFalse(cached.claimRefresh(cache.now()));
+
+        clock.addAndGet(Duration.ofSeconds(9).toNanos());
+        Assertions.assertTrue(cached.claimRefresh(cache.now()));
+        Assertions.assertFalse(cached.claimRefresh(cache.now()), "Expecting only one refresh to be claimed");
+    }
+
+    @Test
+    void testStatsAndExplicitEviction() {
+        SecretsCache cache = new SecretsCache(10, Duration.ofSeconds(10), Duration.ZERO, clock::get);
+        cache.put("username", bytes("Joe"), 1L);
+        cache.put("username", bytes("Joe"), 1L);
+        cache.get("username");
+
+        SecretsCache.SecretStats stats = cache.stats("username").orElseThrow();
+        Assertions.assertEquals(1, stats.hits());
+        Assertions.assertEquals(2, stats.loads());
+
+        Assertions.assertTrue(cache.evict("username"));
+        Assertions.assertFalse(cache.evict("username"));
+        Assertions.assertTrue(cache.stats("username").isEmpty());
+    }
+
+    @Test
+    void testRotationAndHotSecrets() {
+        SecretsCache cache = new SecretsCache(10, Duration.ofSeconds(10), Duration.ZERO, clock::get);
+        Assertions.assertFalse(cache.put("username", bytes("Joe"), 1L));
+        Assertions.assertFalse(cache.put("username", bytes("Joe"), 1L));
+        cache.put("password", bytes("Mighty!"), 1L);
+        cache.get("username");
+        Assertions.assertEquals(List.of("username"), cache.hotSecrets());
+
+        Assertions.assertTrue(cache.put("username", bytes("Jane"), 2L), "Expecting a new version to be reported as rotation");
+        Assertions.assertEquals(2L, cache.get("username").orElseThrow().versionNumber());
+
+        Assertions.assertFalse(cache.put("username", bytes("Joe"), 1L), "Expecting an older version to be ignored");
+        Assertions.assertEquals("Jane", cache.get("username").orElseThrow().value());
+        Assertions.assertEquals("Jane", cache.getNewer("username", 1L).orElseThrow().value());
+        Assertions.assertTrue(cache.getNewer("username", 2L).isEmpty());
+    }
+
+    @Test
+    void testStaleValue() {
+        SecretsCache cache = new SecretsCache(10, Duration.ofSeconds(10), Duration.ZERO, Duration.ofSeconds(60), clock::get);
+        cache.put("username", bytes("Joe"), 1L);
+
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        Assertions.assertTrue(cache.get("username").isEmpty(), "Expecting the entry to be expired");
+        Assertions.assertEquals("Joe", cache.getStale("username").orElseThrow().value());
+        Assertions.assertEquals(1L, cache.stats().get("stale-hits"));
+
+        clock.addAndGet(Duration.ofSeconds(40).toNanos());
+        Assertions.assertTrue(cache.getStale("username").isEmpty(), "Expecting the entry to be too old");
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testOffHeap() {
+        SecretsCache cache = new SecretsCache(1, Duration.ofSeconds(10), Duration.ZERO, Duration.ZERO, true, clock::get);
+        byte[] value = bytes("Mighty!");
+        cache.put("password", value, 1L);
+        SecretsCache.CachedSecret cached = cache.get("password").orElseThrow();
+        Assertions.assertEquals("Mighty!", cached.value());
+        Assertions.assertArrayEquals(value, cached.copy());
+        Assertions.assertNotSame(cached.copy(), cached.copy(), "Expecting each caller to get its own copy");
+        Assertions.assertTrue(cache.stats().get("off-heap-bytes") > value.length);
+
+        cache.put("username", bytes("Joe"), 1L);
+        Assertions.assertNull(cached.copy(), "Expecting the evicted value to be wiped");
+        Assertions.assertArrayEquals(bytes("Joe"), cache.get("username").orElseThrow().copy());
+        Assertions.assertTrue(cache.evict("username"));
+        Assertions.assertEquals(0L, cache.stats().get("off-heap-bytes"));
+    }
+
+    @Test
+    void testVersions() {
+        SecretsCache cache = new SecretsCache(2, Duration.ofSeconds(10), Duration.ZERO, clock::get);
+        cache.put("username", bytes("Jane"), 2L);
+        cache.putVersion("username", 1L, bytes("Joe"));
+        cache.putVersion("username", 1L, bytes("Ignored"));
+        Assertions.assertEquals("Joe", cache.getVersion("username", 1L).orElseThrow().value());
+        Assertions.assertTrue(cache.getVersion("username", 2L).isEmpty());
+
+        clock.addAndGet(Duration.ofDays(1).toNanos());
+        Assertions.assertTrue(cache.get("username").isEmpty(), "Expecting the current value to be expired");
+        Assertions.assertEquals("Joe", cache.getVersion("username", 1L).orElseThrow().value(),
+                                "Expecting versions not to expire");
+        Assertions.assertEquals(1L, cache.stats().get("versions"));
+
+        Assertions.assertTrue(cache.evict("username"));
+        Assertions.assertTrue(cache.getVersion("username", 1L).isEmpty());
+    }
+
+    @Test
+    void testDisabled() {
+        SecretsCache cache = new SecretsCache(0, Duration.ofSeconds(10), Duration.ZERO, clock::get);
+        cache.put("username", bytes("Joe"), 1L);
+        Assertions.assertTrue(cache.get("username").isEmpty());
+    }
+
+    @Test
+    void testGetCachedSecret() {
+        Secrets secretsClient = MockVaultClients.secretsClient();
+        SecretsResource secretsResource = new SecretsResource(MockVaultClients.providerBuilder(secretsClient).build());
+        String secretKey = "username";
+        String expected = FakeSecretsData.getDecodedValue(secretKey);
+        Assertions.assertEquals(expected, MockVaultClients.readSecret(secretsResource.getSecretAsync(secretKey)));
+        Assertions.assertEquals(expected, MockVaultClients.readSecret(secretsResource.getSecretAsync(secretKey)));
+        verify(secretsClient, times(1)).getSecretBundleByName(any());
+
+        secretsResource.evictSecret(secretKey);
+        Assertions.assertEquals(expected, MockVaultClients.readSecret(secretsResource.getSecretAsync(secretKey)));
+        verify(secretsClient, times(2)).getSecretBundleByName(any());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import io.helidon.microprofile.tests.junit5.AddBean;
+import io.helidon.microprofile.tests.junit5.HelidonTest;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.json.JsonObject;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+
+@HelidonTest
+@AddBean(CdiBeanFakeTest.FakeVaultsBean.class)
+@AddBean(CdiBeanFakeTest.FakeSecretsBean.class)
+class SecretsMetricsCdiTest {
+    @Inject
+    private WebTarget webTarget;
+
+    @Inject
+    @RegistryType(type = MetricRegistry.Type.APPLICATION)
+    private MetricRegistry registry;
+
+    @Test
+    void testMetrics() {
+        webTarget.path("secret/username").request().get(String.class);
+        JsonObject metrics = webTarget
+                .path("metrics/application")
+                .request(MediaType.APPLICATION_JSON)
+                .get(JsonObject.class);
+        Assertions.assertTrue(metrics.containsKey("secrets.vault.calls"), "Expecting vault call metrics");
+        Assertions.assertTrue(metrics.getJsonNumber("secrets.cache.hits").longValue() >= 0);
+        Assertions.assertTrue(registry.getCounters().keySet().stream()
+                                      .anyMatch(id -> id.getName().equals("secrets.cache.hits")),
+                              "Expecting cache statistics to be exposed as counters");
+        Assertions.assertTrue(registry.getCounters().entrySet().stream()
+                                      .filter(entry -> entry.getKey().getName().equals("secrets.cache.misses"))
+                                      .anyMatch(entry -> entry.getValue().getCount() >= 1),
+                              "Expecting the counters to report the statistics of the cache");
+    }
+}
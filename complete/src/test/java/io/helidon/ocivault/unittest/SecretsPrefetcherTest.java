@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SecretsPrefetcherTest {
+    private final SecretsProvider secretsProvider = new SecretsProvider(new CdiBeanFakeTest.FakeSecretsBean(),
+                                                                        new CdiBeanFakeTest.FakeVaultsBean(),
+                                                                        "vaultId",
+                                                                        "vaultCompartmentId",
+                                                                        "vaultKeyId");
+
+    @Test
+    void testPrefetch() {
+        SecretsPrefetcher prefetcher = new SecretsPrefetcher(secretsProvider, List.of("username", "password"),
+                                                             Duration.ofMinutes(1));
+        Assertions.assertFalse(prefetcher.isComplete());
+
+        prefetcher.prefetch().join();
+        Assertions.assertTrue(prefetcher.isComplete());
+        Assertions.assertTrue(secretsProvider.cache().get("username").isPresent());
+        Assertions.assertTrue(secretsProvider.cache().get("password").isPresent());
+    }
+
+    @Test
+    void testPrefetchFailure() {
+        SecretsPrefetcher prefetcher = new SecretsPrefetcher(secretsProvider, List.of("username", "unknown"),
+                                                             Duration.ofMinutes(1));
+        prefetcher.prefetch().join();
+        Assertions.assertFalse(prefetcher.isComplete());
+        Assertions.assertEquals(Set.of("unknown"), prefetcher.pending());
+    }
+}
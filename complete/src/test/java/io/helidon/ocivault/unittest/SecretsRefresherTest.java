@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SecretsRefresherTest {
+    @Test
+    void testRefreshConfiguredAndHotSecrets() {
+        SecretsCache cache = new SecretsCache(10, Duration.ofMinutes(5), Duration.ZERO, System::nanoTime);
+        cache.put("username", bytes("Joe"), 1L);
+        cache.put("password", bytes("Mighty!"), 1L);
+        cache.get("username");
+
+        SecretsRefresher refresher = new SecretsRefresher(Duration.ofMinutes(1), Duration.ZERO, List.of("token"));
+        Set<String> reloaded = ConcurrentHashMap.newKeySet();
+        Set<String> refreshed = refresher.refresh(cache.hotSecrets(), name -> {
+            reloaded.add(name);
+            return CompletableFuture.completedFuture(name);
+        });
+
+        Assertions.assertEquals(Set.of("token", "username"), refreshed);
+        Assertions.assertEquals(Set.of("token", "username"), reloaded);
+    }
+
+    @Test
+    void testPeriodicRefresh() throws InterruptedException {
+        SecretsRefresher refresher = new SecretsRefresher(Duration.ofMillis(50), Duration.ofMillis(10), List.of());
+        CountDownLatch reloads = new CountDownLatch(3);
+        refresher.start(() -> List.of("username"), name -> {
+            reloads.countDown();
+            return CompletableFuture.completedFuture(name);
+        });
+        try {
+            Assertions.assertTrue(reloads.await(5, TimeUnit.SECONDS), "Expecting the secret to be refreshed periodically");
+        } finally {
+            refresher.stop();
+        }
+    }
+
+    @Test
+    void testDisabled() {
+        SecretsRefresher refresher = SecretsRefresher.disabled();
+        Assertions.assertFalse(refresher.isEnabled());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
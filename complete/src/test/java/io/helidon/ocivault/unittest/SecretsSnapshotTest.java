@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SecretsSnapshotTest {
+    private static final byte[] KEY = new byte[32];
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWriteAndRead() throws Exception {
+        Path path = directory.resolve("secrets.snapshot");
+        SecretsSnapshot snapshot = new SecretsSnapshot(path, KEY, Duration.ofHours(1), Duration.ZERO, clock::get);
+        Map<String, SecretsSnapshot.Entry> secrets = new LinkedHashMap<>();
+        secrets.put("username", entry("Joe", 1L, Duration.ZERO));
+        secrets.put("password", entry("Mighty!", null, Duration.ofMinutes(5)));
+        snapshot.write(secrets);
+
+        Assertions.assertFalse(new String(Files.readAllBytes(path), StandardCharsets.ISO_8859_1).contains("Mighty!"),
+                               "Expecting the snapshot to be encrypted");
+        clock.addAndGet(Duration.ofMinutes(1).toMillis());
+        Map<String, SecretsSnapshot.Entry> restored = snapshot.read();
+        Assertions.assertEquals(2, restored.size());
+        Assertions.assertEquals("Joe", value(restored.get("username")));
+        Assertions.assertEquals(1L, restored.get("username").value().versionNumber());
+        Assertions.assertEquals("Mighty!", value(restored.get("password")));
+        Assertions.assertNull(restored.get("password").value().versionNumber());
+        Assertions.assertEquals(Duration.ofMinutes(6), restored.get("password").age());
+
+        byte[] otherKey = KEY.clone();
+        otherKey[0] = 1;
+        Assertions.assertTrue(new SecretsSnapshot(path, otherKey, Duration.ofHours(1), Duration.ZERO, clock::get)
+                                      .read()
+                                      .isEmpty(), "Expecting a snapshot with another key to be ignored");
+    }
+
+    @Test
+    void testMaxStaleness() throws Exception {
+        Path path = directory.resolve("secrets.snapshot");
+        SecretsSnapshot snapshot = new SecretsSnapshot(path, KEY, Duration.ofHours(1), Duration.ZERO, clock::get);
+        Map<String, SecretsSnapshot.Entry> secrets = new LinkedHashMap<>();
+        secrets.put("username", entry("Joe", 1L, Duration.ofMinutes(10)));
+        secrets.put("password", entry("Mighty!", 1L, Duration.ofMinutes(40)));
+        snapshot.write(secrets);
+
+        clock.addAndGet(Duration.ofMinutes(30).toMillis());
+        Assertions.assertEquals(Map.of("username", "Joe"), values(snapshot.read()));
+
+        clock.addAndGet(Duration.ofMinutes(31).toMillis());
+        Assertions.assertTrue(snapshot.read().isEmpty(), "Expecting an outdated snapshot to be ignored");
+        Assertions.assertTrue(new SecretsSnapshot(directory.resolve("missing"), KEY, Duration.ofHours(1), Duration.ZERO,
+                                                  clock::get).read().isEmpty());
+    }
+
+    @Test
+    void testRestoreSnapshotWhileVaultUnavailable() throws Exception {
+        SecretsSnapshot secretsSnapshot = new SecretsSnapshot(directory.resolve("secrets.snapshot"),
+                                                              KEY,
+                                                              Duration.ofHours(1),
+                                                              Duration.ZERO,
+                                                              System::currentTimeMillis);
+        byte[] value = FakeSecretsData.getDecodedValue("username").getBytes(StandardCharsets.UTF_8);
+        secretsSnapshot.write(Map.of("username", new SecretsSnapshot.Entry(new SecretValue(value, 1L), Duration.ZERO)));
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(MockVaultClients.unavailableSecretsClient())
+                .executorThreads(1)
+                .secretsSnapshot(secretsSnapshot)
+                .build();
+        secretsProvider.start();
+        try {
+            Assertions.assertEquals(FakeSecretsData.getDecodedValue("username"), secretsProvider.getSecret("username"));
+        } finally {
+            secretsProvider.shutdown();
+        }
+        Assertions.assertEquals(Set.of("username"), secretsSnapshot.read().keySet(),
+                                "Expecting the restored secret to be written to the snapshot on shutdown");
+    }
+
+    private static SecretsSnapshot.Entry entry(String value, Long versionNumber, Duration age) {
+        return new SecretsSnapshot.Entry(new SecretValue(value.getBytes(StandardCharsets.UTF_8), versionNumber), age);
+    }
+
+    private static String value(SecretsSnapshot.Entry entry) {
+        return new String(entry.value().bytes(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> values(Map<String, SecretsSnapshot.Entry> entries) {
+        Map<String, String> values = new LinkedHashMap<>();
+        entries.forEach((name, entry) -> values.put(name, value(entry)));
+        return values;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.ws.rs.WebApplicationException;
+
+import com.oracle.bmc.secrets.Secrets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SecretsTimeoutTest {
+    @Test
+    void testGetSecretTimeout() {
+        Secrets slowSecretsClient = mock(Secrets.class);
+        doAnswer(invocationOnMock -> {
+            Thread.sleep(1000);
+            return null;
+        }).when(slowSecretsClient).getSecretBundleByName(any());
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(slowSecretsClient).build();
+        SecretsResource secretsResource = new SecretsResource(secretsProvider, Duration.ofMillis(100));
+
+        CompletionException e = Assertions.assertThrows(
+                CompletionException.class, () -> MockVaultClients.join(secretsResource.getSecretAsync("username")));
+        Assertions.assertTrue(e.getCause() instanceof WebApplicationException);
+        Assertions.assertEquals(504, ((WebApplicationException) e.getCause()).getResponse().getStatus());
+    }
+
+    @Test
+    void testWipeSecretCompletedAfterTimeout() {
+        CompletableFuture<SecretValue> slowValue = new CompletableFuture<>();
+        SecretsProvider slowSecretsProvider = mock(SecretsProvider.class);
+        when(slowSecretsProvider.getSecretValueAsync(any())).thenReturn(slowValue);
+        SecretsResource secretsResource = new SecretsResource(slowSecretsProvider, Duration.ofMillis(100));
+
+        CompletionException e = Assertions.assertThrows(
+                CompletionException.class, () -> MockVaultClients.join(secretsResource.getSecretAsync("username")));
+        Assertions.assertEquals(504, ((WebApplicationException) e.getCause()).getResponse().getStatus());
+        byte[] value = FakeSecretsData.getDecodedValue("username").getBytes(StandardCharsets.UTF_8);
+        slowValue.complete(new SecretValue(value, 1L));
+        Assertions.assertArrayEquals(new byte[value.length], value, "Expecting a value completed too late to be wiped");
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+    private final SingleFlight<SecretRef, String> singleFlight = new SingleFlight<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentCallersShareOneCall() throws Exception {
+        List<Future<String>> results = callConcurrently(() -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "Joe";
+        });
+        release.countDown();
+        for (Future<String> result : results) {
+            Assertions.assertEquals("Joe", result.get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testFailureIsSharedAndNotRetained() throws Exception {
+        List<Future<String>> results = callConcurrently(() -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("Vault unavailable");
+        });
+        release.countDown();
+        for (Future<String> result : results) {
+            Exception e = Assertions.assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assertions.assertEquals(1, calls.get());
+
+        Assertions.assertEquals("Joe", singleFlight.execute(SecretRef.current("username"), () -> "Joe"));
+    }
+
+    @Test
+    void testCallersGetOwnCopies() {
+        SingleFlight<SecretRef, byte[]> copies = new SingleFlight<>(byte[]::clone, value -> Arrays.fill(value, (byte) 0));
+        SecretRef ref = SecretRef.current("username");
+        byte[] loaded = {1, 2, 3};
+        CompletableFuture<byte[]> load = new CompletableFuture<>();
+        CompletableFuture<byte[]> first = copies.executeAsync(ref, () -> load);
+        CompletableFuture<byte[]> second = copies.executeAsync(ref, () -> {
+            throw new IllegalStateException("Expecting the second caller to join the call in flight");
+        });
+        Assertions.assertEquals(1, copies.waiting(ref));
+
+        load.complete(loaded);
+        Assertions.assertArrayEquals(new byte[] {1, 2, 3}, first.join());
+        Assertions.assertArrayEquals(new byte[] {1, 2, 3}, second.join());
+        Assertions.assertNotSame(first.join(), second.join());
+        Assertions.assertArrayEquals(new byte[3], loaded, "Expecting the loaded value to be released");
+    }
+
+    private List<Future<String>> callConcurrently(Supplier<String> supplier) throws InterruptedException {
+        SecretRef ref = SecretRef.current("username");
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute(ref, supplier)));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute(ref, supplier)));
+        }
+        // release the call only once the remaining callers joined it, a late caller would start its own call
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.waiting(ref) < CALLERS - 1) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Expecting all callers to join the call in flight");
+            Thread.sleep(1);
+        }
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
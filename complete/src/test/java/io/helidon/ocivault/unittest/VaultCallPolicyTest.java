@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.WebApplicationException;
+
+import com.oracle.bmc.model.BmcException;
+import com.oracle.bmc.secrets.Secrets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VaultCallPolicyTest {
+    private static final String VAULT_ID = "vaultId";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final List<Integer> retries = new ArrayList<>();
+
+    @Test
+    void testRetryThrottledCall() {
+        VaultCallPolicy policy = policy(3, 10);
+        String value = policy.call(VAULT_ID, true, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw failure(429);
+            }
+            return "Joe";
+        }, retries::add);
+
+        Assertions.assertEquals("Joe", value);
+        Assertions.assertEquals(List.of(1, 2), retries);
+    }
+
+    @Test
+    void testNoRetryOfClientErrorOrFailedWrite() {
+        VaultCallPolicy policy = policy(3, 10);
+        Assertions.assertThrows(BmcException.class, () -> policy.call(VAULT_ID, true, () -> {
+            calls.incrementAndGet();
+            throw failure(404);
+        }, retries::add));
+        Assertions.assertThrows(VaultUnavailableException.class, () -> policy.call(VAULT_ID, false, () -> {
+            calls.incrementAndGet();
+            throw failure(500);
+        }, retries::add));
+
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertTrue(retries.isEmpty());
+    }
+
+    @Test
+    void testCircuitBreakerOpensAndRecovers() {
+        VaultCallPolicy policy = policy(0, 2);
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertThrows(VaultUnavailableException.class, () -> policy.call(VAULT_ID, true, () -> {
+                calls.incrementAndGet();
+                throw failure(503);
+            }, retries::add));
+        }
+        Assertions.assertTrue(policy.isOpen(VAULT_ID));
+        VaultUnavailableException e = Assertions.assertThrows(VaultUnavailableException.class,
+                                                              () -> policy.call(VAULT_ID, true, this::count, retries::add));
+        Assertions.assertEquals(Duration.ofSeconds(30), e.retryAfter().orElseThrow());
+        Assertions.assertEquals(2, calls.get(), "Expecting the vault not to be called while the breaker is open");
+        Assertions.assertFalse(policy.isOpen("otherVaultId"));
+
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        Assertions.assertEquals("Joe", policy.call(VAULT_ID, true, this::count, retries::add));
+        Assertions.assertFalse(policy.isOpen(VAULT_ID));
+    }
+
+    @Test
+    void testJitteredRetryDelays() {
+        VaultCallPolicy policy = new VaultCallPolicy(3, Duration.ofMillis(100), Duration.ofMillis(250), 0,
+                                                     Duration.ZERO, 0, System::nanoTime);
+        long delay = Duration.ofMillis(100).toNanos();
+        Set<Long> firstDelays = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            long firstDelay = policy.nextDelay(delay);
+            Assertions.assertTrue(firstDelay >= delay && firstDelay <= Duration.ofMillis(250).toNanos(),
+                                  "Expecting the first delay between the delay and the max delay: " + firstDelay);
+            firstDelays.add(firstDelay);
+        }
+        Assertions.assertTrue(firstDelays.size() > 1, "Expecting the first retry to be jittered");
+    }
+
+    @Test
+    void testServeStaleSecretWhileVaultUnavailable() {
+        Secrets secretsClient = MockVaultClients.secretsClient();
+        Secrets failingSecretsClient = mock(Secrets.class);
+        when(failingSecretsClient.getSecretBundleByName(any()))
+                .thenAnswer(invocationOnMock -> secretsClient.getSecretBundleByName(invocationOnMock.getArgument(0)))
+                .thenThrow(failure(503));
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(failingSecretsClient)
+                .secretsCache(new SecretsCache(10, Duration.ofSeconds(10), Duration.ZERO, Duration.ofMinutes(1),
+                                               clock::get))
+                .executorThreads(1)
+                .vaultCallPolicy(new VaultCallPolicy(0, Duration.ZERO, Duration.ZERO, 1, Duration.ofMinutes(1), 0,
+                                                     clock::get))
+                .build();
+        SecretsResource secretsResource = new SecretsResource(secretsProvider);
+
+        String expected = FakeSecretsData.getDecodedValue("username");
+        Assertions.assertEquals(expected, MockVaultClients.readSecret(secretsResource.getSecretAsync("username")));
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        Assertions.assertEquals(expected, MockVaultClients.readSecret(secretsResource.getSecretAsync("username")));
+        Assertions.assertEquals(expected, MockVaultClients.readSecret(secretsResource.getSecretAsync("username")));
+        verify(failingSecretsClient, times(2)).getSecretBundleByName(any());
+
+        CompletionException e = Assertions.assertThrows(
+                CompletionException.class, () -> MockVaultClients.join(secretsResource.getSecretAsync("password")));
+        Assertions.assertTrue(e.getCause() instanceof WebApplicationException);
+        Assertions.assertEquals(503, ((WebApplicationException) e.getCause()).getResponse().getStatus());
+    }
+
+    private String count() {
+        calls.incrementAndGet();
+        return "Joe";
+    }
+
+    private VaultCallPolicy policy(int maxRetries, int failureThreshold) {
+        return new VaultCallPolicy(maxRetries,
+                                   Duration.ofMillis(1),
+                                   Duration.ofMillis(5),
+                                   failureThreshold,
+                                   Duration.ofSeconds(30),
+                                   4,
+                                   clock::get);
+    }
+
+    private static BmcException failure(int status) {
+        return new BmcException(status, "Failure", "Vault call failed", "requestId");
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.util.List;
+
+import com.oracle.bmc.secrets.Secrets;
+import com.oracle.bmc.vault.Vaults;
+import com.oracle.bmc.vault.model.SecretSummary;
+import com.oracle.bmc.vault.requests.ListSecretsRequest;
+import com.oracle.bmc.vault.responses.ListSecretsResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VaultClientTuningTest {
+    @Test
+    void testWarmUpConnections() {
+        Vaults vaultsClient = mock(Vaults.class);
+        when(vaultsClient.listSecrets(any())).thenReturn(ListSecretsResponse.builder()
+                .items(List.of(SecretSummary.builder()
+                                       .secretName("username")
+                                       .lifecycleState(SecretSummary.LifecycleState.Active)
+                                       .build()))
+                .build());
+        Secrets warmedSecretsClient = MockVaultClients.secretsClient();
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(warmedSecretsClient, vaultsClient).build();
+
+        secretsProvider.warmUp(3).join();
+        ArgumentCaptor<ListSecretsRequest> listRequest = ArgumentCaptor.forClass(ListSecretsRequest.class);
+        verify(vaultsClient).listSecrets(listRequest.capture());
+        Assertions.assertEquals(SecretSummary.LifecycleState.Active, listRequest.getValue().getLifecycleState());
+        verify(warmedSecretsClient, times(3)).getSecretBundleByName(argThat(request -> "username"
+                .equals(request.getSecretName())));
+    }
+
+    @Test
+    void testWarmUpWithoutSecrets() {
+        Vaults vaultsClient = mock(Vaults.class);
+        when(vaultsClient.listSecrets(any())).thenReturn(ListSecretsResponse.builder().items(List.of()).build());
+        Secrets warmedSecretsClient = mock(Secrets.class);
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(warmedSecretsClient, vaultsClient).build();
+
+        secretsProvider.warmUp(3).join();
+        verify(warmedSecretsClient, never()).getSecretBundleByName(any());
+    }
+}
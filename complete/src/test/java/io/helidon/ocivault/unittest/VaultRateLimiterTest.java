@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class VaultRateLimiterTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<String, VaultRateLimiter.Limits> limits = Map.of(
+            "vaultId", new VaultRateLimiter.Limits(10, 2, 1, 1),
+            "otherVaultId", new VaultRateLimiter.Limits(0, 1, 0, 1));
+
+    @Test
+    void testBurstThenRefill() {
+        VaultRateLimiter limiter = new VaultRateLimiter(limits::get, Duration.ZERO, clock::get);
+        limiter.acquire("vaultId", VaultRateLimiter.Access.READ);
+        limiter.acquire("vaultId", VaultRateLimiter.Access.READ);
+        RateLimitExceededException e = Assertions.assertThrows(
+                RateLimitExceededException.class,
+                () -> limiter.acquire("vaultId", VaultRateLimiter.Access.READ));
+        Assertions.assertEquals(Duration.ofMillis(100), e.retryAfter().orElseThrow());
+
+        clock.addAndGet(Duration.ofMillis(100).toNanos());
+        limiter.acquire("vaultId", VaultRateLimiter.Access.READ);
+    }
+
+    @Test
+    void testSeparateBudgets() {
+        VaultRateLimiter limiter = new VaultRateLimiter(limits::get, Duration.ZERO, clock::get);
+        limiter.acquire("vaultId", VaultRateLimiter.Access.WRITE);
+        Assertions.assertThrows(RateLimitExceededException.class,
+                                () -> limiter.acquire("vaultId", VaultRateLimiter.Access.WRITE));
+        limiter.acquire("vaultId", VaultRateLimiter.Access.READ);
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("otherVaultId", VaultRateLimiter.Access.WRITE);
+        }
+    }
+
+    @Test
+    void testWaitForToken() {
+        VaultRateLimiter limiter = new VaultRateLimiter(limits::get, Duration.ofSeconds(1), System::nanoTime);
+        limiter.acquire("vaultId", VaultRateLimiter.Access.WRITE);
+        long start = System.nanoTime();
+        limiter.acquire("vaultId", VaultRateLimiter.Access.WRITE);
+        Assertions.assertTrue(System.nanoTime() - start >= Duration.ofMillis(900).toNanos(),
+                              "Expecting the second write to wait for a token");
+    }
+
+    @Test
+    void testRateLimitExceeded() {
+        VaultRateLimiter.Limits limits = new VaultRateLimiter.Limits(1, 1, 1, 1);
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(MockVaultClients.secretsClient())
+                .executorThreads(1)
+                .vaultRateLimiter(new VaultRateLimiter(vaultId -> limits, Duration.ZERO, System::nanoTime))
+                .build();
+        SecretsResource secretsResource = new SecretsResource(secretsProvider);
+
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("username"),
+                                MockVaultClients.readSecret(secretsResource.getSecretAsync("username")));
+        CompletionException e = Assertions.assertThrows(
+                CompletionException.class, () -> MockVaultClients.join(secretsResource.getSecretAsync("password")));
+        Assertions.assertTrue(e.getCause() instanceof WebApplicationException);
+        Response response = ((WebApplicationException) e.getCause()).getResponse();
+        Assertions.assertEquals(429, response.getStatus());
+        Assertions.assertEquals("1", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals(FakeSecretsData.CREATE_SECRET_ID,
+                                MockVaultClients.join(secretsResource.createSecretAsync("NewSecret", "Value")));
+    }
+
+    @Test
+    void testRateLimitedCallsDoNotHoldBulkhead() throws Exception {
+        VaultRateLimiter.Limits limits = new VaultRateLimiter.Limits(2, 1, 0, 1);
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(MockVaultClients.secretsClient())
+                .secretsCache(new SecretsCache(0, Duration.ZERO, Duration.ZERO, Duration.ZERO, false))
+                .vaultCallPolicy(new VaultCallPolicy(0, Duration.ZERO, Duration.ZERO, 0, Duration.ZERO, 1,
+                                                     System::nanoTime))
+                .vaultRateLimiter(new VaultRateLimiter(vaultId -> limits, Duration.ofSeconds(5), System::nanoTime))
+                .build();
+
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("username"), secretsProvider.getSecret("username"));
+        // waits about half a second for a read token
+        CompletionStage<String> throttled = secretsProvider.getSecretAsync("password");
+        Thread.sleep(100);
+        // writes are not limited and must not be rejected by the bulkhead while the read waits for its token
+        Assertions.assertEquals(FakeSecretsData.CREATE_SECRET_ID, secretsProvider.createSecret("NewSecret", "Value"));
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("password"), MockVaultClients.join(throttled));
+    }
+}
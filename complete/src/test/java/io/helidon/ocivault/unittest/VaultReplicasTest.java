@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2022 Oracle and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.helidon.ocivault.unittest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.oracle.bmc.model.BmcException;
+import com.oracle.bmc.secrets.Secrets;
+import com.oracle.bmc.secrets.model.Base64SecretBundleContentDetails;
+import com.oracle.bmc.secrets.model.SecretBundle;
+import com.oracle.bmc.secrets.responses.GetSecretBundleByNameResponse;
+import io.helidon.common.Base64Value;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VaultReplicasTest {
+    private final VaultReplica primary = new VaultReplica("primary", null, "primaryId", null, List.of());
+    private final VaultReplica phoenix = new VaultReplica("phoenix", "us-phoenix-1", "phoenixId", null, List.of("us/"));
+    private final VaultReplica frankfurt = new VaultReplica("frankfurt", "eu-frankfurt-1", "frankfurtId", null, List.of());
+
+    @Test
+    void testRouteByLatency() {
+        primary.recordLatency(30_000_000);
+        phoenix.recordLatency(20_000_000);
+        frankfurt.recordLatency(10_000_000);
+        Assertions.assertEquals(List.of("frankfurt", "phoenix", "primary"), route("username", Set.of()));
+
+        frankfurt.recordLatency(110_000_000);
+        Assertions.assertEquals(30_000_000, frankfurt.latencyNanos(), "Expecting a moving average of the latency");
+        Assertions.assertEquals(List.of("phoenix", "primary", "frankfurt"), route("username", Set.of()));
+    }
+
+    @Test
+    void testRouteByPrefixAndAvailability() {
+        primary.recordLatency(10_000_000);
+        phoenix.recordLatency(90_000_000);
+        Assertions.assertEquals(List.of("frankfurt", "primary", "phoenix"), route("username", Set.of()),
+                                "Expecting a replica without measured latency to be tried first");
+        Assertions.assertEquals(List.of("phoenix", "frankfurt", "primary"), route("us/username", Set.of()));
+        Assertions.assertEquals(List.of("frankfurt", "primary", "phoenix"), route("us/username", Set.of("phoenixId")));
+    }
+
+    @Test
+    void testRouteAroundFailingReplica() {
+        primary.recordLatency(30_000_000);
+        frankfurt.recordLatency(10_000_000);
+        phoenix.recordLatency(20_000_000);
+        frankfurt.recordFailure(1_000_000);
+        frankfurt.recordFailure(1_000_000);
+        Assertions.assertEquals(List.of("phoenix", "primary", "frankfurt"), route("username", Set.of()),
+                                "Expecting a replica that fails fast not to keep its latency");
+    }
+
+    @Test
+    void testReadFromReplicaWhileVaultUnavailable() {
+        Secrets failingSecretsClient = MockVaultClients.unavailableSecretsClient();
+        VaultReplica replica = new VaultReplica("phoenix", "us-phoenix-1", "replicaVaultId",
+                                                MockVaultClients.secretsClient(), List.of());
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(failingSecretsClient)
+                .secretsCache(new SecretsCache(0, Duration.ZERO, Duration.ZERO, Duration.ZERO, false))
+                .executorThreads(1)
+                .vaultCallPolicy(new VaultCallPolicy(0, Duration.ZERO, Duration.ZERO, 1, Duration.ofMinutes(1), 0,
+                                                     System::nanoTime))
+                .vaultReplicas(new VaultReplicas(List.of(replica), null, Duration.ZERO))
+                .build();
+        SecretsResource secretsResource = new SecretsResource(secretsProvider);
+
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("username"),
+                                MockVaultClients.readSecret(secretsResource.getSecretAsync("username")));
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("password"),
+                                MockVaultClients.readSecret(secretsResource.getSecretAsync("password")));
+        verify(failingSecretsClient, times(1)).getSecretBundleByName(any());
+        Assertions.assertTrue(replica.latencyNanos() >= 0, "Expecting the latency of the replica to be measured");
+    }
+
+    @Test
+    void testReplicaLatencyExcludesRateLimitWait() {
+        Secrets failingSecretsClient = MockVaultClients.unavailableSecretsClient();
+        VaultReplica replica = new VaultReplica("phoenix", "us-phoenix-1", "replicaVaultId",
+                                                MockVaultClients.secretsClient(), List.of());
+        VaultRateLimiter.Limits limits = new VaultRateLimiter.Limits(2, 1, 0, 1);
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(failingSecretsClient)
+                .secretsCache(new SecretsCache(0, Duration.ZERO, Duration.ZERO, Duration.ZERO, false))
+                .vaultCallPolicy(new VaultCallPolicy(0, Duration.ZERO, Duration.ZERO, 1, Duration.ofMinutes(1), 0,
+                                                     System::nanoTime))
+                .vaultRateLimiter(new VaultRateLimiter(vaultId -> limits, Duration.ofSeconds(5), System::nanoTime))
+                .vaultReplicas(new VaultReplicas(List.of(replica), null, Duration.ZERO))
+                .build();
+
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("username"), secretsProvider.getSecret("username"));
+        // the replica is read first now, after waiting about half a second for a token
+        Assertions.assertEquals(FakeSecretsData.getDecodedValue("password"), secretsProvider.getSecret("password"));
+        verify(failingSecretsClient, times(1)).getSecretBundleByName(any());
+        Assertions.assertTrue(replica.latencyNanos() < TimeUnit.MILLISECONDS.toNanos(80),
+                              "Expecting the latency of the replica not to include the rate limit wait");
+    }
+
+    @Test
+    void testIgnoreOlderVersionOfLaggingReplica() {
+        AtomicLong clock = new AtomicLong();
+        Secrets primarySecretsClient = mock(Secrets.class);
+        when(primarySecretsClient.getSecretBundleByName(any()))
+                .thenReturn(bundle("Jane", 2))
+                .thenThrow(new BmcException(503, "ServiceUnavailable", "Vault unavailable", "requestId"));
+        Secrets laggingSecretsClient = mock(Secrets.class);
+        when(laggingSecretsClient.getSecretBundleByName(any())).thenReturn(bundle("Joe", 1));
+        VaultReplica replica = new VaultReplica("phoenix", "us-phoenix-1", "replicaVaultId", laggingSecretsClient,
+                                                List.of());
+        SecretsProvider secretsProvider = MockVaultClients.providerBuilder(primarySecretsClient)
+                .secretsCache(new SecretsCache(10, Duration.ofSeconds(10), Duration.ZERO, Duration.ofHours(1),
+                                               clock::get))
+                .executorThreads(1)
+                .vaultCallPolicy(new VaultCallPolicy(0, Duration.ZERO, Duration.ZERO, 1, Duration.ofMinutes(1), 0,
+                                                     System::nanoTime))
+                .vaultReplicas(new VaultReplicas(List.of(replica), null, Duration.ZERO))
+                .build();
+        List<Long> rotations = new ArrayList<>();
+        secretsProvider.rotations().subscribe(List.of("username"), (name, version) -> rotations.add(version));
+
+        Assertions.assertEquals("Jane", secretsProvider.getSecret("username"));
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        Assertions.assertEquals("Jane", secretsProvider.getSecret("username"),
+                                "Expecting the cached newer version to be served instead of the replica's");
+        verify(laggingSecretsClient, times(1)).getSecretBundleByName(any());
+        Assertions.assertEquals(2L, secretsProvider.cache().stats("username").orElseThrow().versionNumber());
+        Assertions.assertTrue(rotations.isEmpty(), "Expecting an older version not to be reported as rotation");
+    }
+
+    private static GetSecretBundleByNameResponse bundle(String value, long versionNumber) {
+        return GetSecretBundleByNameResponse.builder()
+                .__httpStatusCode__(200)
+                .secretBundle(SecretBundle.builder()
+                                      .versionNumber(versionNumber)
+                                      .secretBundleContent(Base64SecretBundleContentDetails.builder()
+                                                                   .content(Base64Value.create(value).toBase64())
+                                                                   .build())
+                                      .build())
+                .build();
+    }
+
+    private List<String> route(String secretName, Set<String> openVaults) {
+        return VaultReplicas.route(List.of(primary, phoenix, frankfurt), secretName, openVaults::contains)
+                .stream()
+                .map(VaultReplica::name)
+                .collect(Collectors.toList());
+    }
+}